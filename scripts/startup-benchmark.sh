@@ -0,0 +1,58 @@
+#!/bin/sh
+#
+# Measures the cold start of the pricing command on a small batch file,
+# without and with the application class-data-sharing archive.
+#
+# Usage: scripts/startup-benchmark.sh [runs] [entries]
+#
+# Build first with: mvn -Pcds package
+#
+set -e
+
+RUNS=${1:-20}
+ENTRIES=${2:-50}
+TARGET=$(dirname "$0")/../target
+JAR=$TARGET/salex-taxes.jar
+JSA=$TARGET/salex-taxes.jsa
+INPUT=$TARGET/startup-benchmark.txt
+
+if [ ! -f "$JAR" ] || [ ! -f "$JSA" ]; then
+	echo "Missing $JAR or $JSA, run: mvn -Pcds package" >&2
+	exit 1
+fi
+
+java -cp "$JAR" it.alagna.salextaxes.generator.OrderGenerator "$ENTRIES" > "$INPUT"
+
+# average wall time in milliseconds of RUNS executions of: java <options> -jar JAR INPUT
+measure() {
+	measure_command "$@" -jar "$JAR" "$INPUT" /dev/null
+}
+
+# current time in milliseconds: date +%N is GNU only, BSD and macOS date print a literal N
+now_ms() {
+	case $(date +%N) in
+		*[!0-9]*) perl -MTime::HiRes=time -e 'printf "%d\n", time * 1000' ;;
+		*) echo $(($(date +%s%N) / 1000000)) ;;
+	esac
+}
+
+# average wall time in milliseconds of RUNS executions of: java <arguments>
+# the clock is read once around all the runs, so that its own cost is spread over them
+measure_command() {
+	i=0
+	start=$(now_ms)
+	while [ $i -lt "$RUNS" ]; do
+		java "$@" > /dev/null 2>&1
+		i=$((i + 1))
+	done
+	end=$(now_ms)
+	echo $(((end - start) / RUNS))
+}
+
+echo "entries: $ENTRIES, runs: $RUNS, $(java -version 2>&1 | head -1)"
+printf "%-40s %8s\n" "configuration" "avg ms"
+printf "%-40s %8s\n" "JVM only (java -version)" "$(measure_command -Xshare:auto -version)"
+printf "%-40s %8s\n" "default" "$(measure -Xshare:auto)"
+printf "%-40s %8s\n" "tiered C1 only" "$(measure -XX:TieredStopAtLevel=1)"
+printf "%-40s %8s\n" "app CDS" "$(measure -XX:SharedArchiveFile="$JSA")"
+printf "%-40s %8s\n" "app CDS, C1 only, serial GC" "$(measure -XX:SharedArchiveFile="$JSA" -XX:TieredStopAtLevel=1 -XX:+UseSerialGC)"
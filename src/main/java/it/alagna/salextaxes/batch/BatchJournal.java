@@ -0,0 +1,255 @@
+package it.alagna.salextaxes.batch;
+
+import it.alagna.salextaxes.model.BatchResultModel;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ *
+ * Append-only journal of the progress of a batch run, stored in a directory as:
+ * <ul>
+ * <li>{@link #JOURNAL_FILE}: fixed size progress records, appended and synced at every commit</li>
+ * <li>{@link #CHECKPOINT_FILE}: a single progress record, atomically replaced at every checkpoint,
+ * after which the journal starts over empty</li>
+ * </ul>
+ * Every record carries a CRC32, so a record torn by a crash is detected and ignored on recovery.
+ * Every record also carries the identity of the input (its size and a checksum of its first and last bytes),
+ * so that a run cannot resume against another input.
+ */
+public class BatchJournal implements Closeable
+{
+	public static final String JOURNAL_FILE = "journal";
+	public static final String CHECKPOINT_FILE = "checkpoint";
+
+	private static final int MAGIC = 0x53544a32; // STJ2
+	private static final int RECORD_SIZE = 80; // magic, 4 counters/offsets, 2 totals with scales, input size and checksum, crc
+	private static final int IDENTITY_BYTES = 64 * 1024;
+
+	private final Path directory;
+	private final long inputSize;
+	private final long inputChecksum;
+	private final FileChannel journal;
+	private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+	private final CRC32 crc = new CRC32();
+
+	/**
+	 * @param directory - the directory of the journal, created if missing
+	 * @param input - the input of the run recorded by the journal
+	 * @throws IOException if the input cannot be read or the journal cannot be opened
+	 */
+	public BatchJournal(Path directory, Path input) throws IOException
+	{
+		this.directory = directory;
+		this.inputSize = Files.size(input);
+		this.inputChecksum = checksum(input, inputSize);
+		Files.createDirectories(directory);
+		this.journal = FileChannel.open(directory.resolve(JOURNAL_FILE),
+				StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+	}
+
+	/**
+	 * Reads the latest progress recorded by the checkpoint and the journal, and drops any torn record
+	 * at the end of the journal, so that the next commits are appended right after the last valid one.
+	 *
+	 * @return the latest progress, or an empty progress if nothing was recorded
+	 * @throws IOException if the journal cannot be read, or it was recorded for another input
+	 */
+	public BatchResultModel recover() throws IOException
+	{
+		BatchResultModel latest = new BatchResultModel();
+
+		Path checkpoint = directory.resolve(CHECKPOINT_FILE);
+		if(Files.exists(checkpoint))
+		{
+			try(FileChannel channel = FileChannel.open(checkpoint, StandardOpenOption.READ))
+			{
+				BatchResultModel recorded = readRecord(channel, 0);
+				if(recorded == null)
+				{
+					throw new IOException("Corrupted checkpoint " + checkpoint);
+				}
+				latest = recorded;
+			}
+		}
+
+		long position = 0;
+		BatchResultModel recorded;
+		while((recorded = readRecord(journal, position)) != null)
+		{
+			// the journal may still hold records older than the checkpoint if a crash followed the checkpoint
+			if(recorded.getOrders() >= latest.getOrders())
+			{
+				latest = recorded;
+			}
+			position += RECORD_SIZE;
+		}
+
+		journal.truncate(position);
+		journal.position(position);
+		return latest;
+	}
+
+	/**
+	 * Appends the progress to the journal and forces it to the storage.
+	 *
+	 * @param progress - the progress to record
+	 * @throws IOException if the journal cannot be written
+	 */
+	public void commit(BatchResultModel progress) throws IOException
+	{
+		writeRecord(journal, progress);
+		journal.force(false);
+	}
+
+	/**
+	 * Atomically replaces the checkpoint with the progress, then empties the journal.
+	 *
+	 * @param progress - the progress to record
+	 * @throws IOException if the checkpoint cannot be written
+	 */
+	public void checkpoint(BatchResultModel progress) throws IOException
+	{
+		Path temporary = directory.resolve(CHECKPOINT_FILE + ".tmp");
+		try(FileChannel channel = FileChannel.open(temporary,
+				StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING))
+		{
+			writeRecord(channel, progress);
+			channel.force(true);
+		}
+		Files.move(temporary, directory.resolve(CHECKPOINT_FILE), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		// the rename must be durable before the journal records it replaces are dropped
+		forceDirectory();
+
+		journal.truncate(0);
+		journal.position(0);
+	}
+
+	public void close() throws IOException
+	{
+		journal.close();
+	}
+
+	private void forceDirectory() throws IOException
+	{
+		FileChannel channel;
+		try
+		{
+			channel = FileChannel.open(directory, StandardOpenOption.READ);
+		}
+		catch (IOException e)
+		{
+			// directories cannot be opened on some platforms, e.g. Windows, where the rename is durable once done
+			return;
+		}
+		try
+		{
+			channel.force(true);
+		}
+		finally
+		{
+			channel.close();
+		}
+	}
+
+	private void writeRecord(FileChannel channel, BatchResultModel progress) throws IOException
+	{
+		record.clear();
+		record.putInt(MAGIC);
+		record.putLong(progress.getOrders());
+		record.putLong(progress.getEntries());
+		record.putLong(progress.getInputOffset());
+		record.putLong(progress.getOutputOffset());
+		record.putLong(progress.getTotalTaxes().unscaledValue().longValueExact());
+		record.putInt(progress.getTotalTaxes().scale());
+		record.putLong(progress.getTotalPrice().unscaledValue().longValueExact());
+		record.putInt(progress.getTotalPrice().scale());
+		record.putLong(inputSize);
+		record.putLong(inputChecksum);
+
+		crc.reset();
+		crc.update(record.array(), 0, record.position());
+		record.putInt((int) crc.getValue());
+		record.flip();
+
+		while(record.hasRemaining())
+		{
+			channel.write(record);
+		}
+	}
+
+	/**
+	 * @return the record at the position, or null if it is missing, incomplete or corrupted
+	 * @throws IOException if the record was written for another input
+	 */
+	private BatchResultModel readRecord(FileChannel channel, long position) throws IOException
+	{
+		record.clear();
+		while(record.hasRemaining())
+		{
+			if(channel.read(record, position + record.position()) < 0)
+			{
+				return null;
+			}
+		}
+		record.flip();
+
+		int checked = RECORD_SIZE - 4;
+		crc.reset();
+		crc.update(record.array(), 0, checked);
+		if(record.getInt(0) != MAGIC || record.getInt(checked) != (int) crc.getValue())
+		{
+			return null;
+		}
+
+		BatchResultModel progress = new BatchResultModel();
+		record.position(4);
+		progress.setOrders(record.getLong());
+		progress.setEntries(record.getLong());
+		progress.setInputOffset(record.getLong());
+		progress.setOutputOffset(record.getLong());
+		long taxes = record.getLong();
+		progress.setTotalTaxes(BigDecimal.valueOf(taxes, record.getInt()));
+		long price = record.getLong();
+		progress.setTotalPrice(BigDecimal.valueOf(price, record.getInt()));
+		if(record.getLong() != inputSize || record.getLong() != inputChecksum)
+		{
+			throw new IOException("Journal " + directory + " was recorded for another input");
+		}
+		return progress;
+	}
+
+	/**
+	 * @return the CRC32 of the first and last bytes of the input
+	 */
+	private static long checksum(Path input, long size) throws IOException
+	{
+		CRC32 checksum = new CRC32();
+		ByteBuffer buffer = ByteBuffer.allocate(IDENTITY_BYTES);
+		try(FileChannel channel = FileChannel.open(input, StandardOpenOption.READ))
+		{
+			for(long position : new long[] { 0, Math.max(0, size - IDENTITY_BYTES) })
+			{
+				buffer.clear();
+				while(buffer.hasRemaining())
+				{
+					if(channel.read(buffer, position + buffer.position()) < 0)
+					{
+						break;
+					}
+				}
+				buffer.flip();
+				checksum.update(buffer.array(), 0, buffer.limit());
+			}
+		}
+		return checksum.getValue();
+	}
+}
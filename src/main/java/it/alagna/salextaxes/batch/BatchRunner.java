@@ -0,0 +1,137 @@
+package it.alagna.salextaxes.batch;
+
+import it.alagna.salextaxes.exception.OrderEntryException;
+import it.alagna.salextaxes.io.OrderTextReader;
+import it.alagna.salextaxes.io.ReceiptByteRenderer;
+import it.alagna.salextaxes.model.BatchResultModel;
+import it.alagna.salextaxes.model.OrderModel;
+import it.alagna.salextaxes.model.OrderResultModel;
+import it.alagna.salextaxes.service.IOrderService;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ *
+ * Prices a file of orders in the text format of {@link OrderTextReader}, writing one receipt per order
+ * followed by an empty line to the output file, and summing counters and totals of all the orders.
+ * The text format has no currency, so all the orders of a file share the same currency and their totals can be summed.
+ */
+public class BatchRunner
+{
+	protected final IOrderService orderService;
+
+	public BatchRunner(IOrderService orderService)
+	{
+		this.orderService = orderService;
+	}
+
+	/**
+	 * Prices all the orders of the input, replacing the output.
+	 *
+	 * @param input - the orders to price
+	 * @param output - the destination of the receipts
+	 * @return counters and totals of all the orders
+	 * @throws OrderEntryException if one of the entries cannot be evaluated
+	 * @throws IOException if the input cannot be read or the output cannot be written
+	 */
+	public BatchResultModel run(Path input, Path output) throws OrderEntryException, IOException
+	{
+		return run(input, output, new BatchResultModel(), Long.MAX_VALUE);
+	}
+
+	/**
+	 * Prices the orders starting in the given byte range of the input, replacing the output.
+	 * The range should start at an order boundary, see {@link ShardPlanner}, and an order belongs to the range
+	 * if its first line starts in it: adjacent ranges price every order exactly once, whatever the empty lines between orders.
+	 *
+	 * @param input - the orders to price
+	 * @param output - the destination of the receipts
+	 * @param startOffset - the offset of the first order to price, or of the empty lines preceding it
+	 * @param endOffset - the offset from which orders are left to the next range
+	 * @return counters and totals of the orders in the range
+	 * @throws OrderEntryException if one of the entries cannot be evaluated
+	 * @throws IOException if the input cannot be read or the output cannot be written
+	 */
+	public BatchResultModel run(Path input, Path output, long startOffset, long endOffset) throws OrderEntryException, IOException
+	{
+		BatchResultModel progress = new BatchResultModel();
+		progress.setInputOffset(startOffset);
+		return run(input, output, progress, endOffset);
+	}
+
+	/**
+	 * Prices the orders of the input whose first line starts at or after the input offset of the given progress
+	 * and before endOffset, writing the receipts at its output offset, after truncating the output there.
+	 *
+	 * @param input - the orders to price
+	 * @param output - the destination of the receipts
+	 * @param progress - the progress to resume from, updated after every order
+	 * @param endOffset - the offset from which orders are left to the next range
+	 * @return the updated progress
+	 * @throws OrderEntryException if one of the entries cannot be evaluated
+	 * @throws IOException if the input cannot be read or the output cannot be written
+	 */
+	protected BatchResultModel run(Path input, Path output, BatchResultModel progress, long endOffset) throws OrderEntryException, IOException
+	{
+		try(FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+				FileChannel out = FileChannel.open(output, StandardOpenOption.WRITE, StandardOpenOption.CREATE))
+		{
+			long outputStart = progress.getOutputOffset();
+			in.position(progress.getInputOffset());
+			out.truncate(outputStart);
+			out.position(outputStart);
+
+			OrderTextReader reader = new OrderTextReader(Channels.newInputStream(in), progress.getInputOffset());
+			ReceiptByteRenderer renderer = new ReceiptByteRenderer(orderService, out, ReceiptByteRenderer.RECEIPT_SEPARATOR);
+
+			try
+			{
+				OrderModel order;
+				while(progress.getInputOffset() < endOffset && (order = reader.read()) != null && reader.getOrderStart() < endOffset)
+				{
+					OrderResultModel result = renderer.render(order);
+					progress.add(order.getEntries().size(), result.getTotalTaxes(), result.getTotalPrice());
+					progress.setInputOffset(reader.getPosition());
+					progress.setOutputOffset(outputStart + renderer.getBytesRendered());
+					orderProcessed(progress, renderer, out);
+				}
+
+				renderer.flush();
+				finished(progress, out);
+			}
+			finally
+			{
+				renderer.close();
+			}
+		}
+
+		return progress;
+	}
+
+	/**
+	 * Called after every order, with the receipts possibly still buffered in the renderer.
+	 *
+	 * @param progress - the progress including the order
+	 * @param renderer - the renderer of the receipts
+	 * @param output - the output file
+	 * @throws IOException if the receipts cannot be written
+	 */
+	protected void orderProcessed(BatchResultModel progress, ReceiptByteRenderer renderer, FileChannel output) throws IOException
+	{
+	}
+
+	/**
+	 * Called after the last order, with all the receipts written to the output.
+	 *
+	 * @param progress - the final progress
+	 * @param output - the output file
+	 * @throws IOException if the output cannot be written
+	 */
+	protected void finished(BatchResultModel progress, FileChannel output) throws IOException
+	{
+	}
+}
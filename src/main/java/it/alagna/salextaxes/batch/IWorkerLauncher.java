@@ -0,0 +1,22 @@
+package it.alagna.salextaxes.batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+public interface IWorkerLauncher {
+
+	/**
+	 * Starts a {@link ShardWorker} process.
+	 * 
+	 * @param arguments - the arguments of {@link ShardWorker#main(String[])}
+	 * @param log - the file receiving the output of the process
+	 * @return the started process
+	 */
+	Process launch(List<String> arguments, File log) throws IOException;
+	
+	/**
+	 * @return a description of where the processes run, for reports
+	 */
+	String getName();
+}
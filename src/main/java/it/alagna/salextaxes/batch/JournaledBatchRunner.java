@@ -0,0 +1,173 @@
+package it.alagna.salextaxes.batch;
+
+import it.alagna.salextaxes.exception.OrderEntryException;
+import it.alagna.salextaxes.io.ReceiptByteRenderer;
+import it.alagna.salextaxes.model.BatchResultModel;
+import it.alagna.salextaxes.service.IOrderService;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * {@link BatchRunner} that records its progress in a {@link BatchJournal}, so that a run interrupted by a crash
+ * resumes right after the last committed order, with the same totals and output as an uninterrupted run.
+ * </br></br>
+ * Progress is committed in groups: every {@link #getCommitOrders()} orders or {@link #getCommitMillis()} milliseconds,
+ * whichever comes first, the receipts are flushed and synced to the output, then a single journal record is appended and synced.
+ * Every {@link #getCheckpointCommits()} commits the progress is checkpointed and the journal emptied.
+ * </br></br>
+ * A journal directory belongs to a single input/output pair. Instances are not thread safe.
+ */
+public class JournaledBatchRunner extends BatchRunner
+{
+	public static final int DEFAULT_COMMIT_ORDERS = 10000;
+	public static final long DEFAULT_COMMIT_MILLIS = 1000;
+	public static final int DEFAULT_CHECKPOINT_COMMITS = 16;
+
+	private final Path journalDirectory;
+	private int commitOrders = DEFAULT_COMMIT_ORDERS;
+	private long commitMillis = DEFAULT_COMMIT_MILLIS;
+	private int checkpointCommits = DEFAULT_CHECKPOINT_COMMITS;
+
+	private BatchJournal journal;
+	private int uncommittedOrders;
+	private long lastCommitNanos;
+	private int commitsSinceCheckpoint;
+
+	/**
+	 * @param orderService - the service evaluating the orders
+	 * @param journalDirectory - the directory of the journal of this run
+	 */
+	public JournaledBatchRunner(IOrderService orderService, Path journalDirectory)
+	{
+		super(orderService);
+		this.journalDirectory = journalDirectory;
+	}
+
+	/**
+	 * Prices the orders of the input not yet committed in the journal, and appends their receipts to the output
+	 * after the last committed receipt.
+	 *
+	 * @param input - the orders to price
+	 * @param output - the destination of the receipts
+	 * @return counters and totals of all the orders, including the ones priced by previous runs
+	 * @throws OrderEntryException if one of the entries cannot be evaluated
+	 * @throws IOException if the input cannot be read, the output or the journal cannot be written,
+	 * or the journal was recorded for another input
+	 */
+	@Override
+	public BatchResultModel run(Path input, Path output) throws OrderEntryException, IOException
+	{
+		return run(input, output, 0, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Prices the orders starting in the given byte range of the input and not yet committed in the journal,
+	 * and appends their receipts to the output after the last committed receipt.
+	 * The journal directory belongs to this range: resuming it with another range is rejected.
+	 *
+	 * @param input - the orders to price
+	 * @param output - the destination of the receipts
+	 * @param startOffset - the offset of the first order to price, or of the empty lines preceding it
+	 * @param endOffset - the offset from which orders are left to the next range
+	 * @return counters and totals of the orders in the range, including the ones priced by previous runs
+	 * @throws OrderEntryException if one of the entries cannot be evaluated
+	 * @throws IOException if the input cannot be read, the output or the journal cannot be written,
+	 * or the journal was recorded for another input or range
+	 */
+	@Override
+	public BatchResultModel run(Path input, Path output, long startOffset, long endOffset) throws OrderEntryException, IOException
+	{
+		journal = new BatchJournal(journalDirectory, input);
+		try
+		{
+			BatchResultModel progress = journal.recover();
+			if(progress.getOrders() == 0)
+			{
+				progress.setInputOffset(startOffset);
+			}
+			else if(progress.getInputOffset() < startOffset || progress.getInputOffset() > endOffset)
+			{
+				throw new IOException("Journal " + journalDirectory + " was recorded for another range than " + startOffset + "-" + endOffset);
+			}
+			long outputSize = Files.exists(output) ? Files.size(output) : 0;
+			if(outputSize < progress.getOutputOffset())
+			{
+				throw new IOException("Output " + output + " is shorter than its journal: " + outputSize + " < " + progress.getOutputOffset());
+			}
+			if(Files.size(input) < progress.getInputOffset())
+			{
+				throw new IOException("Input " + input + " is shorter than its journal: " + Files.size(input) + " < " + progress.getInputOffset());
+			}
+
+			uncommittedOrders = 0;
+			commitsSinceCheckpoint = 0;
+			lastCommitNanos = System.nanoTime();
+			return run(input, output, progress, endOffset);
+		}
+		finally
+		{
+			journal.close();
+			journal = null;
+		}
+	}
+
+	@Override
+	protected void orderProcessed(BatchResultModel progress, ReceiptByteRenderer renderer, FileChannel output) throws IOException
+	{
+		if(++uncommittedOrders >= commitOrders
+				|| System.nanoTime() - lastCommitNanos >= TimeUnit.MILLISECONDS.toNanos(commitMillis))
+		{
+			renderer.flush();
+			commit(progress, output);
+		}
+	}
+
+	@Override
+	protected void finished(BatchResultModel progress, FileChannel output) throws IOException
+	{
+		output.force(false);
+		journal.checkpoint(progress);
+	}
+
+	private void commit(BatchResultModel progress, FileChannel output) throws IOException
+	{
+		output.force(false);
+
+		if(++commitsSinceCheckpoint >= checkpointCommits)
+		{
+			journal.checkpoint(progress);
+			commitsSinceCheckpoint = 0;
+		}
+		else
+		{
+			journal.commit(progress);
+		}
+
+		uncommittedOrders = 0;
+		lastCommitNanos = System.nanoTime();
+	}
+
+	public int getCommitOrders() {
+		return commitOrders;
+	}
+	public void setCommitOrders(int commitOrders) {
+		this.commitOrders = commitOrders;
+	}
+	public long getCommitMillis() {
+		return commitMillis;
+	}
+	public void setCommitMillis(long commitMillis) {
+		this.commitMillis = commitMillis;
+	}
+	public int getCheckpointCommits() {
+		return checkpointCommits;
+	}
+	public void setCheckpointCommits(int checkpointCommits) {
+		this.checkpointCommits = checkpointCommits;
+	}
+}
@@ -0,0 +1,54 @@
+package it.alagna.salextaxes.batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ *
+ * Launches {@link ShardWorker} processes with the java executable and classpath of the current JVM.
+ * </br></br>
+ * An optional command prefix runs the workers elsewhere, e.g. <code>ssh host</code>:
+ * the remote host then needs the same java installation, classpath and file paths, e.g. through a shared filesystem.
+ */
+public class LocalWorkerLauncher implements IWorkerLauncher
+{
+	private final List<String> commandPrefix;
+	private final List<String> jvmOptions;
+
+	public LocalWorkerLauncher()
+	{
+		this(new ArrayList<String>(), new ArrayList<String>());
+	}
+
+	/**
+	 * @param commandPrefix - the command the java command line is appended to, possibly empty
+	 * @param jvmOptions - options passed to the worker JVM, e.g. -Xmx
+	 */
+	public LocalWorkerLauncher(List<String> commandPrefix, List<String> jvmOptions)
+	{
+		this.commandPrefix = commandPrefix;
+		this.jvmOptions = jvmOptions;
+	}
+
+	public Process launch(List<String> arguments, File log) throws IOException
+	{
+		List<String> command = new ArrayList<String>(commandPrefix);
+		command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+		command.addAll(jvmOptions);
+		command.addAll(Arrays.asList("-cp", System.getProperty("java.class.path"), ShardWorker.class.getName()));
+		command.addAll(arguments);
+
+		return new ProcessBuilder(command)
+				.redirectErrorStream(true)
+				.redirectOutput(log)
+				.start();
+	}
+
+	public String getName()
+	{
+		return commandPrefix.isEmpty() ? "local" : String.join(" ", commandPrefix);
+	}
+}
@@ -0,0 +1,339 @@
+package it.alagna.salextaxes.batch;
+
+import it.alagna.salextaxes.model.ShardResultModel;
+import it.alagna.salextaxes.model.ShardedBatchResultModel;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * Prices a text order file with several {@link ShardWorker} processes.
+ * </br></br>
+ * The input is split by {@link ShardPlanner} into one byte range per worker, every range is priced by its own process,
+ * and the receipts and totals of the shards are merged in input order, so the output is the same as a single {@link BatchRunner}.
+ * Shards are assigned to the launchers in turn. A shard whose worker fails or exceeds the timeout is reassigned to a new worker
+ * of the next launcher, so that a broken host does not fail the run, up to {@link #getMaxAttempts()} times.
+ * </br></br>
+ * Workers are started with {@link ShardWorker#EXIT_ON_STDIN_EOF} and the coordinator keeps their standard input open:
+ * stopping a worker closes it, so a worker started through a command prefix such as <code>ssh host</code> exits
+ * on its host even when only the local ssh client can be killed.
+ * </br></br>
+ * <code>ShardCoordinator &lt;input&gt; &lt;output&gt; &lt;workers&gt; [workDirectory [host...]]</code>,
+ * with the workers run through <code>ssh host</code> on the given hosts, or locally without hosts.
+ */
+public class ShardCoordinator
+{
+	public static final int DEFAULT_MAX_ATTEMPTS = 3;
+	public static final long DEFAULT_TIMEOUT_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+	private static final long POLL_MILLIS = 20;
+
+	private final List<IWorkerLauncher> launchers;
+	private int workers = Runtime.getRuntime().availableProcessors();
+	private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+	private long timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+
+	public ShardCoordinator(IWorkerLauncher launcher)
+	{
+		this(Collections.singletonList(launcher));
+	}
+
+	/**
+	 * @param launchers - the launchers the shards are assigned to in turn, at least one
+	 */
+	public ShardCoordinator(List<IWorkerLauncher> launchers)
+	{
+		if(launchers.isEmpty())
+		{
+			throw new IllegalArgumentException("at least one launcher is required");
+		}
+		this.launchers = new ArrayList<IWorkerLauncher>(launchers);
+	}
+
+	/**
+	 * @param input - the orders to price
+	 * @param output - the destination of the merged receipts
+	 * @param workDirectory - the directory of the receipts, results and logs of the workers
+	 * @return the merged totals and the result of every shard
+	 * @throws IOException if a shard fails more than {@link #getMaxAttempts()} times, or files cannot be read or written
+	 * @throws InterruptedException if interrupted while waiting for the workers, which are then stopped
+	 */
+	public ShardedBatchResultModel run(Path input, Path output, Path workDirectory) throws IOException, InterruptedException
+	{
+		Files.createDirectories(workDirectory);
+		long[] boundaries = new ShardPlanner().split(input, workers);
+
+		Deque<ShardTask> pending = new ArrayDeque<ShardTask>();
+		List<ShardTask> tasks = new ArrayList<ShardTask>();
+		for(int i = 0; i + 1 < boundaries.length; i++)
+		{
+			ShardTask task = new ShardTask(i, boundaries[i], boundaries[i + 1]);
+			tasks.add(task);
+			pending.add(task);
+		}
+
+		List<ShardTask> running = new ArrayList<ShardTask>();
+		try
+		{
+			while(!pending.isEmpty() || !running.isEmpty())
+			{
+				while(running.size() < workers && !pending.isEmpty())
+				{
+					ShardTask task = pending.poll();
+					task.start(input, workDirectory);
+					running.add(task);
+				}
+
+				Thread.sleep(POLL_MILLIS);
+
+				for(Iterator<ShardTask> iterator = running.iterator(); iterator.hasNext();)
+				{
+					ShardTask task = iterator.next();
+					if(task.process.isAlive() && System.nanoTime() - task.startNanos < TimeUnit.MILLISECONDS.toNanos(timeoutMillis))
+					{
+						continue;
+					}
+
+					iterator.remove();
+					if(!task.finish())
+					{
+						if(task.attempts >= maxAttempts)
+						{
+							throw new IOException("Shard " + task.result.getIndex() + " failed " + task.attempts + " times, see " + task.log());
+						}
+						task.reassign();
+						pending.addFirst(task);
+					}
+				}
+			}
+		}
+		finally
+		{
+			for(ShardTask task : running)
+			{
+				task.stop();
+			}
+		}
+
+		return merge(tasks, output);
+	}
+
+	private ShardedBatchResultModel merge(List<ShardTask> tasks, Path output) throws IOException
+	{
+		ShardedBatchResultModel merged = new ShardedBatchResultModel();
+		BigDecimal totalTaxes = merged.getTotalTaxes();
+		BigDecimal totalPrice = merged.getTotalPrice();
+
+		try(FileChannel out = FileChannel.open(output, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING))
+		{
+			for(ShardTask task : tasks)
+			{
+				ShardResultModel shard = task.result;
+				try(FileChannel in = FileChannel.open(task.receipts(), StandardOpenOption.READ))
+				{
+					long position = 0;
+					while(position < shard.getOutputOffset())
+					{
+						position += in.transferTo(position, shard.getOutputOffset() - position, out);
+					}
+				}
+
+				merged.setOrders(merged.getOrders() + shard.getOrders());
+				merged.setEntries(merged.getEntries() + shard.getEntries());
+				totalTaxes = totalTaxes.add(shard.getTotalTaxes());
+				totalPrice = totalPrice.add(shard.getTotalPrice());
+				merged.getShards().add(shard);
+			}
+
+			merged.setTotalTaxes(totalTaxes);
+			merged.setTotalPrice(totalPrice);
+			merged.setInputOffset(tasks.isEmpty() ? 0 : tasks.get(tasks.size() - 1).result.getEndOffset());
+			merged.setOutputOffset(out.size());
+		}
+
+		return merged;
+	}
+
+	public List<IWorkerLauncher> getLaunchers() {
+		return Collections.unmodifiableList(launchers);
+	}
+	public int getWorkers() {
+		return workers;
+	}
+	public void setWorkers(int workers) {
+		this.workers = workers;
+	}
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+	public void setMaxAttempts(int maxAttempts) {
+		this.maxAttempts = maxAttempts;
+	}
+	public long getTimeoutMillis() {
+		return timeoutMillis;
+	}
+	public void setTimeoutMillis(long timeoutMillis) {
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	/**
+	 * A shard, its launcher and its current worker process. Every attempt writes to its own files,
+	 * so a stopped worker cannot overwrite the files of the next one.
+	 */
+	private class ShardTask
+	{
+		private final ShardResultModel result = new ShardResultModel();
+		private int launcher;
+		private Path workDirectory;
+		private Process process;
+		private long startNanos;
+		private int attempts;
+
+		ShardTask(int index, long startOffset, long endOffset)
+		{
+			result.setIndex(index);
+			result.setStartOffset(startOffset);
+			result.setEndOffset(endOffset);
+			launcher = index % launchers.size();
+		}
+
+		void start(Path input, Path workDirectory) throws IOException
+		{
+			this.workDirectory = workDirectory;
+			attempts++;
+			Files.deleteIfExists(resultFile());
+			startNanos = System.nanoTime();
+			process = launchers.get(launcher).launch(Arrays.asList(input.toString(),
+					Long.toString(result.getStartOffset()), Long.toString(result.getEndOffset()),
+					receipts().toString(), resultFile().toString(), ShardWorker.EXIT_ON_STDIN_EOF), log().toFile());
+		}
+
+		/**
+		 * Moves the shard to the next launcher, for its next attempt.
+		 */
+		void reassign()
+		{
+			launcher = (launcher + 1) % launchers.size();
+		}
+
+		/**
+		 * Closes the standard input of the worker, which makes a remote worker exit, then kills the local process.
+		 */
+		void stop()
+		{
+			try
+			{
+				process.getOutputStream().close();
+			}
+			catch (IOException e)
+			{
+				// the process is killed anyway
+			}
+			process.destroyForcibly();
+		}
+
+		/**
+		 * @return true if the worker completed the shard
+		 */
+		boolean finish() throws IOException
+		{
+			if(process.isAlive())
+			{
+				stop();
+				return false;
+			}
+			if(process.exitValue() != 0 || !Files.exists(resultFile()))
+			{
+				return false;
+			}
+
+			Properties properties = new Properties();
+			try(InputStream in = Files.newInputStream(resultFile()))
+			{
+				properties.load(in);
+			}
+
+			result.setOrders(Long.parseLong(properties.getProperty(ShardWorker.ORDERS)));
+			result.setEntries(Long.parseLong(properties.getProperty(ShardWorker.ENTRIES)));
+			result.setTotalTaxes(new BigDecimal(properties.getProperty(ShardWorker.TOTAL_TAXES)));
+			result.setTotalPrice(new BigDecimal(properties.getProperty(ShardWorker.TOTAL_PRICE)));
+			result.setInputOffset(result.getEndOffset());
+			result.setOutputOffset(Long.parseLong(properties.getProperty(ShardWorker.OUTPUT_SIZE)));
+			result.setNanos(Long.parseLong(properties.getProperty(ShardWorker.NANOS)));
+			result.setAttempts(attempts);
+			result.setWorker(launchers.get(launcher).getName());
+			return true;
+		}
+
+		Path receipts()
+		{
+			return file(".txt");
+		}
+
+		Path resultFile()
+		{
+			return file(".properties");
+		}
+
+		Path log()
+		{
+			return file(".log");
+		}
+
+		private Path file(String extension)
+		{
+			return workDirectory.resolve("shard-" + result.getIndex() + "-attempt-" + attempts + extension);
+		}
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException
+	{
+		if(args.length < 3)
+		{
+			System.err.println("Usage: ShardCoordinator <input> <output> <workers> [workDirectory [host...]]");
+			System.exit(1);
+		}
+
+		List<IWorkerLauncher> launchers = new ArrayList<IWorkerLauncher>();
+		for(int i = 4; i < args.length; i++)
+		{
+			launchers.add(new LocalWorkerLauncher(Arrays.asList("ssh", args[i]), new ArrayList<String>()));
+		}
+		if(launchers.isEmpty())
+		{
+			launchers.add(new LocalWorkerLauncher());
+		}
+		ShardCoordinator coordinator = new ShardCoordinator(launchers);
+		coordinator.setWorkers(Integer.parseInt(args[2]));
+		Path workDirectory = args.length > 3 ? Paths.get(args[3]) : Files.createTempDirectory("shards");
+
+		long start = System.nanoTime();
+		ShardedBatchResultModel result = coordinator.run(Paths.get(args[0]), Paths.get(args[1]), workDirectory);
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		for(ShardResultModel shard : result.getShards())
+		{
+			System.out.println(String.format("shard %d [%d, %d) on %s, attempts %d: %d orders, %d entries in %.3f s, %.0f entries/s",
+					shard.getIndex(), shard.getStartOffset(), shard.getEndOffset(), shard.getWorker(), shard.getAttempts(),
+					shard.getOrders(), shard.getEntries(), shard.getNanos() / 1e9, shard.getEntriesPerSecond()));
+		}
+		System.out.println(String.format("total: %d orders, %d entries in %.3f s, %.0f entries/s, sales taxes %s, total %s",
+				result.getOrders(), result.getEntries(), seconds, result.getEntries() / seconds, result.getTotalTaxes(), result.getTotalPrice()));
+	}
+}
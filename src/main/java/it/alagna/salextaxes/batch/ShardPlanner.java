@@ -0,0 +1,103 @@
+package it.alagna.salextaxes.batch;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ * Splits a text order file into byte ranges of about the same size, aligned on order boundaries:
+ * every range starts right after an empty line, or at the start of the file.
+ */
+public class ShardPlanner
+{
+	private static final int SCAN_BUFFER_SIZE = 8 * 1024;
+
+	/**
+	 * @param input - the text order file to split
+	 * @param shards - the number of ranges wanted
+	 * @return the boundaries of the ranges, from 0 to the size of the file included;
+	 *         fewer than shards + 1 if the file has too few orders
+	 * @throws IOException if the file cannot be read
+	 */
+	public long[] split(Path input, int shards) throws IOException
+	{
+		if(shards < 1)
+		{
+			throw new IllegalArgumentException("shards should be positive");
+		}
+
+		try(FileChannel channel = FileChannel.open(input, StandardOpenOption.READ))
+		{
+			long size = channel.size();
+			List<Long> boundaries = new ArrayList<Long>();
+			boundaries.add(0L);
+
+			for(int shard = 1; shard < shards; shard++)
+			{
+				long boundary = nextBoundary(channel, size * shard / shards);
+				if(boundary > boundaries.get(boundaries.size() - 1) && boundary < size)
+				{
+					boundaries.add(boundary);
+				}
+			}
+
+			if(size > 0)
+			{
+				boundaries.add(size);
+			}
+
+			long[] result = new long[boundaries.size()];
+			for(int i = 0; i < result.length; i++)
+			{
+				result[i] = boundaries.get(i);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * @return the first position at or after from that follows an empty line, or the size of the file
+	 */
+	private long nextBoundary(FileChannel channel, long from) throws IOException
+	{
+		if(from == 0)
+		{
+			return 0;
+		}
+
+		// start a few bytes earlier to see the empty line, possibly "\r\n", ending right at from
+		long position = Math.max(0, from - 3);
+		boolean lineEmpty = false;
+		ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+
+		while(channel.read(buffer, position) > 0)
+		{
+			buffer.flip();
+			while(buffer.hasRemaining())
+			{
+				byte b = buffer.get();
+				position++;
+				if(b == '\n')
+				{
+					if(lineEmpty && position >= from)
+					{
+						return position;
+					}
+					lineEmpty = true;
+				}
+				else if(b != '\r')
+				{
+					lineEmpty = false;
+				}
+			}
+			buffer.clear();
+		}
+
+		return channel.size();
+	}
+}
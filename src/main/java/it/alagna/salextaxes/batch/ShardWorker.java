@@ -0,0 +1,100 @@
+package it.alagna.salextaxes.batch;
+
+import it.alagna.salextaxes.model.BatchResultModel;
+import it.alagna.salextaxes.service.impl.OrderService;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ *
+ * Worker process of a {@link ShardCoordinator}: prices the orders of a byte range of the input
+ * and writes their receipts and a result file.
+ * </br></br>
+ * <code>ShardWorker &lt;input&gt; &lt;startOffset&gt; &lt;endOffset&gt; &lt;receipts&gt; &lt;result&gt; [--exit-on-stdin-eof]</code>
+ * </br></br>
+ * The result file is a properties file written only on success, by atomic rename.
+ * With {@link #EXIT_ON_STDIN_EOF} the worker exits as soon as its standard input is closed, e.g. by the ssh session
+ * of a coordinator stopping it.
+ */
+public class ShardWorker
+{
+	public static final String ORDERS = "orders";
+	public static final String ENTRIES = "entries";
+	public static final String TOTAL_TAXES = "totalTaxes";
+	public static final String TOTAL_PRICE = "totalPrice";
+	public static final String OUTPUT_SIZE = "outputSize";
+	public static final String NANOS = "nanos";
+	public static final String EXIT_ON_STDIN_EOF = "--exit-on-stdin-eof";
+
+	public static void main(String[] args)
+	{
+		if(args.length != 5 && (args.length != 6 || !EXIT_ON_STDIN_EOF.equals(args[5])))
+		{
+			System.err.println("Usage: ShardWorker <input> <startOffset> <endOffset> <receipts> <result> [" + EXIT_ON_STDIN_EOF + "]");
+			System.exit(1);
+		}
+		if(args.length == 6)
+		{
+			exitOnStdinEof();
+		}
+
+		try
+		{
+			long start = System.nanoTime();
+			BatchResultModel result = new BatchRunner(new OrderService())
+					.run(Paths.get(args[0]), Paths.get(args[3]), Long.parseLong(args[1]), Long.parseLong(args[2]));
+			long nanos = System.nanoTime() - start;
+
+			Properties properties = new Properties();
+			properties.setProperty(ORDERS, Long.toString(result.getOrders()));
+			properties.setProperty(ENTRIES, Long.toString(result.getEntries()));
+			properties.setProperty(TOTAL_TAXES, result.getTotalTaxes().toString());
+			properties.setProperty(TOTAL_PRICE, result.getTotalPrice().toString());
+			properties.setProperty(OUTPUT_SIZE, Long.toString(result.getOutputOffset()));
+			properties.setProperty(NANOS, Long.toString(nanos));
+
+			Path resultFile = Paths.get(args[4]);
+			Path temporary = resultFile.resolveSibling(resultFile.getFileName() + ".tmp");
+			try(OutputStream out = Files.newOutputStream(temporary))
+			{
+				properties.store(out, null);
+			}
+			Files.move(temporary, resultFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch (Exception e)
+		{
+			System.err.println("Shard failed: " + e);
+			System.exit(2);
+		}
+	}
+
+	private static void exitOnStdinEof()
+	{
+		Thread watcher = new Thread(new Runnable() {
+			public void run()
+			{
+				try
+				{
+					while(System.in.read() != -1)
+					{
+						// the coordinator sends nothing
+					}
+				}
+				catch (IOException e)
+				{
+					// closed as well
+				}
+				System.err.println("Shard stopped: standard input closed");
+				System.exit(3);
+			}
+		}, "stdin-watcher");
+		watcher.setDaemon(true);
+		watcher.start();
+	}
+}
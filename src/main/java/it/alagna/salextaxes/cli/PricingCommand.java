@@ -0,0 +1,171 @@
+package it.alagna.salextaxes.cli;
+
+import it.alagna.salextaxes.exception.OrderEntryException;
+import it.alagna.salextaxes.io.IOrderReader;
+import it.alagna.salextaxes.io.OrderBinaryReader;
+import it.alagna.salextaxes.io.OrderTextReader;
+import it.alagna.salextaxes.io.ReceiptByteRenderer;
+import it.alagna.salextaxes.model.OrderModel;
+import it.alagna.salextaxes.service.IOrderService;
+import it.alagna.salextaxes.service.impl.OrderService;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ *
+ * Command line entry point: reads orders and writes one receipt per order.
+ * </br></br>
+ * <code>PricingCommand [--binary] [input [output]]</code>
+ * </br></br>
+ * Orders are read in the text format of {@link OrderTextReader}, or in the binary format of
+ * {@link OrderBinaryReader} with --binary, from the input file or the standard input.
+ * Every receipt is written as {@link IOrderService#toOutputString(OrderModel)} followed by an empty line,
+ * to the output file or the standard output. The standard streams are flushed but never closed.
+ */
+public class PricingCommand
+{
+	public static final int EXIT_OK = 0;
+	public static final int EXIT_USAGE = 1;
+	public static final int EXIT_INVALID_ORDER = 2;
+	public static final int EXIT_IO_ERROR = 3;
+
+	private static final String USAGE = "Usage: PricingCommand [--binary] [input [output]]";
+
+	public static void main(String[] args)
+	{
+		System.exit(run(args));
+	}
+
+	/**
+	 * @param args - the command line arguments
+	 * @return the process exit code
+	 */
+	public static int run(String[] args)
+	{
+		boolean binary = false;
+		String input = null;
+		String output = null;
+
+		for(String arg : args)
+		{
+			if("--binary".equals(arg))
+			{
+				binary = true;
+			}
+			else if(arg.startsWith("-") && arg.length() > 1)
+			{
+				System.err.println(USAGE);
+				return EXIT_USAGE;
+			}
+			else if(input == null)
+			{
+				input = arg;
+			}
+			else if(output == null)
+			{
+				output = arg;
+			}
+			else
+			{
+				System.err.println(USAGE);
+				return EXIT_USAGE;
+			}
+		}
+
+		try(InputStream in = input == null || "-".equals(input) ? new StandardInputStream() : new FileInputStream(input);
+				OutputStream out = output == null || "-".equals(output) ? new StandardOutputStream() : new FileOutputStream(output))
+		{
+			price(binary ? new OrderBinaryReader(in) : new OrderTextReader(in), out, new OrderService());
+			return EXIT_OK;
+		}
+		catch (OrderEntryException e)
+		{
+			System.err.println("Invalid order: " + e.getMessage());
+			return EXIT_INVALID_ORDER;
+		}
+		catch (IOException e)
+		{
+			System.err.println("I/O error: " + e.getMessage());
+			return EXIT_IO_ERROR;
+		}
+	}
+
+	/**
+	 * Writes the receipt of every order read.
+	 *
+	 * @param reader - the source of the orders, closed at the end
+	 * @param out - the destination of the receipts, flushed and closed at the end
+	 * @param orderService - the service evaluating the orders
+	 * @return the number of orders priced
+	 * @throws OrderEntryException if one of the entries cannot be evaluated
+	 * @throws IOException if the orders cannot be read or the receipts cannot be written;
+	 * a failure to close is suppressed by the failure that preceded it
+	 */
+	public static long price(IOrderReader reader, OutputStream out, IOrderService orderService) throws OrderEntryException, IOException
+	{
+		long orders = 0;
+
+		// closed in reverse order: the reader, then the renderer flushing the receipts, then the channel
+		try(WritableByteChannel channel = Channels.newChannel(out);
+				ReceiptByteRenderer renderer = new ReceiptByteRenderer(orderService, channel, ReceiptByteRenderer.RECEIPT_SEPARATOR);
+				IOrderReader orderReader = reader)
+		{
+			OrderModel order;
+			while((order = orderReader.read()) != null)
+			{
+				renderer.render(order);
+				orders++;
+			}
+		}
+
+		return orders;
+	}
+
+	/**
+	 * The standard input, left open on close.
+	 */
+	private static class StandardInputStream extends FilterInputStream
+	{
+		StandardInputStream()
+		{
+			super(System.in);
+		}
+
+		@Override
+		public void close()
+		{
+			// the standard input belongs to the process
+		}
+	}
+
+	/**
+	 * The standard output, only flushed on close.
+	 */
+	private static class StandardOutputStream extends FilterOutputStream
+	{
+		StandardOutputStream()
+		{
+			super(System.out);
+		}
+
+		@Override
+		public void write(byte[] bytes, int offset, int length) throws IOException
+		{
+			out.write(bytes, offset, length);
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			flush();
+		}
+	}
+}
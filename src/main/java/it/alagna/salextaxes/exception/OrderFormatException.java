@@ -0,0 +1,15 @@
+package it.alagna.salextaxes.exception;
+
+import java.io.IOException;
+
+public class OrderFormatException extends IOException {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 1L;
+
+	public OrderFormatException(String string) {
+		super(string);
+	}
+}
@@ -0,0 +1,186 @@
+package it.alagna.salextaxes.generator;
+
+import it.alagna.salextaxes.io.IOrderWriter;
+import it.alagna.salextaxes.io.OrderBinaryWriter;
+import it.alagna.salextaxes.io.OrderTextWriter;
+import it.alagna.salextaxes.model.OrderEntryModel;
+import it.alagna.salextaxes.model.OrderModel;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ *
+ * Deterministic generator of synthetic orders.
+ * Two generators built from settings with the same values produce the same sequence of orders.
+ * </br></br>
+ * Usage from the command line, writing to the standard output:</br>
+ * <code>OrderGenerator &lt;entries&gt; [text|binary] [seed]</code>
+ */
+public class OrderGenerator
+{
+	private static final String[] CONTAINERS = { "box", "bottle", "packet", "bag", "jar", "case", "pack", "tin" };
+	private static final String[] PRODUCTS = { "chocolates", "perfume", "headache pills", "coffee", "tea", "books",
+		"music CDs", "crisps", "olive oil", "candles", "soap", "pencils", "batteries", "vitamins", "wine", "biscuits" };
+
+	private final OrderGeneratorSettings settings;
+	private final Random random;
+	private final String[] descriptions;
+	private final long minCents;
+	private final long priceRange;
+
+	public OrderGenerator(OrderGeneratorSettings settings)
+	{
+		if(settings.getMinEntriesPerOrder() < 1 || settings.getMaxEntriesPerOrder() < settings.getMinEntriesPerOrder())
+		{
+			throw new IllegalArgumentException("invalid entries per order range");
+		}
+		if(settings.getMinQuantity() < 0 || settings.getMaxQuantity() < settings.getMinQuantity())
+		{
+			throw new IllegalArgumentException("invalid quantity range");
+		}
+		if(settings.getMinPrice().signum() < 0 || settings.getMaxPrice().compareTo(settings.getMinPrice()) < 0)
+		{
+			throw new IllegalArgumentException("invalid price range");
+		}
+		if(settings.getDescriptionCardinality() < 1)
+		{
+			throw new IllegalArgumentException("descriptionCardinality should be positive");
+		}
+
+		this.settings = settings;
+		this.random = new Random(settings.getSeed());
+		this.minCents = settings.getMinPrice().movePointRight(2).longValue();
+		this.priceRange = settings.getMaxPrice().movePointRight(2).longValue() - minCents + 1;
+		this.descriptions = new String[settings.getDescriptionCardinality()];
+
+		int combinations = CONTAINERS.length * PRODUCTS.length;
+		for(int i = 0; i < descriptions.length; i++)
+		{
+			int combination = i % combinations;
+			String description = CONTAINERS[combination % CONTAINERS.length] + " of " + PRODUCTS[combination / CONTAINERS.length];
+			descriptions[i] = i < combinations ? description : description + " #" + (i / combinations);
+		}
+	}
+
+	/**
+	 * @return the next order, with a random number of entries
+	 */
+	public OrderModel nextOrder()
+	{
+		return nextOrder(nextOrderSize());
+	}
+
+	/**
+	 * @param size - the number of entries
+	 * @return the next order, with the given number of entries
+	 */
+	public OrderModel nextOrder(int size)
+	{
+		List<OrderEntryModel> entries = new ArrayList<OrderEntryModel>(size);
+
+		for(int i = 0; i < size; i++)
+		{
+			entries.add(nextEntry());
+		}
+
+		OrderModel order = new OrderModel();
+		order.setEntries(entries);
+		return order;
+	}
+
+	/**
+	 * @return the next entry
+	 */
+	public OrderEntryModel nextEntry()
+	{
+		int quantityRange = settings.getMaxQuantity() - settings.getMinQuantity() + 1;
+		long cents = minCents + (long) (random.nextDouble() * priceRange);
+
+		OrderEntryModel entry = new OrderEntryModel();
+		entry.setDescription(descriptions[random.nextInt(descriptions.length)]);
+		entry.setQuantity(settings.getMinQuantity() + random.nextInt(quantityRange));
+		entry.setPricePerUnit(BigDecimal.valueOf(cents, 2));
+		entry.setImported(random.nextDouble() < settings.getImportedRatio());
+		entry.setTaxExempt(random.nextDouble() < settings.getExemptRatio());
+		return entry;
+	}
+
+	/**
+	 * @param orders - the number of orders to generate
+	 * @return the generated orders
+	 */
+	public List<OrderModel> generate(int orders)
+	{
+		List<OrderModel> result = new ArrayList<OrderModel>(orders);
+
+		for(int i = 0; i < orders; i++)
+		{
+			result.add(nextOrder());
+		}
+
+		return result;
+	}
+
+	/**
+	 * Writes orders until the given number of entries is reached.
+	 * The last order is truncated so that exactly totalEntries entries are written.
+	 *
+	 * @param writer - the destination of the orders
+	 * @param totalEntries - the number of entries to write
+	 * @return the number of orders written
+	 * @throws IOException if the writer fails
+	 */
+	public long write(IOrderWriter writer, long totalEntries) throws IOException
+	{
+		long orders = 0;
+		long remaining = totalEntries;
+
+		while(remaining > 0)
+		{
+			int size = nextOrderSize();
+			if(size > remaining)
+			{
+				size = (int) remaining;
+			}
+
+			writer.write(nextOrder(size));
+			remaining -= size;
+			orders++;
+		}
+
+		writer.flush();
+		return orders;
+	}
+
+	private int nextOrderSize()
+	{
+		int range = settings.getMaxEntriesPerOrder() - settings.getMinEntriesPerOrder() + 1;
+		return settings.getMinEntriesPerOrder() + random.nextInt(range);
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		if(args.length < 1)
+		{
+			System.err.println("Usage: OrderGenerator <entries> [text|binary] [seed]");
+			System.exit(1);
+		}
+
+		OrderGeneratorSettings settings = new OrderGeneratorSettings();
+		if(args.length > 2)
+		{
+			settings.setSeed(Long.parseLong(args[2]));
+		}
+
+		IOrderWriter writer = args.length > 1 && "binary".equals(args[1])
+				? new OrderBinaryWriter(System.out)
+				: new OrderTextWriter(System.out);
+
+		new OrderGenerator(settings).write(writer, Long.parseLong(args[0]));
+		writer.close();
+	}
+}
@@ -0,0 +1,83 @@
+package it.alagna.salextaxes.generator;
+
+import java.math.BigDecimal;
+
+/**
+ *
+ * Distributions used by {@link OrderGenerator}.
+ * Entries per order, quantities and prices are drawn uniformly from their inclusive ranges.
+ */
+public class OrderGeneratorSettings {
+
+	private long seed = 42;
+	private int minEntriesPerOrder = 1;
+	private int maxEntriesPerOrder = 10;
+	private int minQuantity = 1;
+	private int maxQuantity = 5;
+	private BigDecimal minPrice = BigDecimal.valueOf(0.50).setScale(2);
+	private BigDecimal maxPrice = BigDecimal.valueOf(100.00).setScale(2);
+	private double importedRatio = 0.3;
+	private double exemptRatio = 0.4;
+	private int descriptionCardinality = 1000;
+
+	public long getSeed() {
+		return seed;
+	}
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+	public int getMinEntriesPerOrder() {
+		return minEntriesPerOrder;
+	}
+	public void setMinEntriesPerOrder(int minEntriesPerOrder) {
+		this.minEntriesPerOrder = minEntriesPerOrder;
+	}
+	public int getMaxEntriesPerOrder() {
+		return maxEntriesPerOrder;
+	}
+	public void setMaxEntriesPerOrder(int maxEntriesPerOrder) {
+		this.maxEntriesPerOrder = maxEntriesPerOrder;
+	}
+	public int getMinQuantity() {
+		return minQuantity;
+	}
+	public void setMinQuantity(int minQuantity) {
+		this.minQuantity = minQuantity;
+	}
+	public int getMaxQuantity() {
+		return maxQuantity;
+	}
+	public void setMaxQuantity(int maxQuantity) {
+		this.maxQuantity = maxQuantity;
+	}
+	public BigDecimal getMinPrice() {
+		return minPrice;
+	}
+	public void setMinPrice(BigDecimal minPrice) {
+		this.minPrice = minPrice;
+	}
+	public BigDecimal getMaxPrice() {
+		return maxPrice;
+	}
+	public void setMaxPrice(BigDecimal maxPrice) {
+		this.maxPrice = maxPrice;
+	}
+	public double getImportedRatio() {
+		return importedRatio;
+	}
+	public void setImportedRatio(double importedRatio) {
+		this.importedRatio = importedRatio;
+	}
+	public double getExemptRatio() {
+		return exemptRatio;
+	}
+	public void setExemptRatio(double exemptRatio) {
+		this.exemptRatio = exemptRatio;
+	}
+	public int getDescriptionCardinality() {
+		return descriptionCardinality;
+	}
+	public void setDescriptionCardinality(int descriptionCardinality) {
+		this.descriptionCardinality = descriptionCardinality;
+	}
+}
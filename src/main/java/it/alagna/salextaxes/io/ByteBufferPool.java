@@ -0,0 +1,82 @@
+package it.alagna.salextaxes.io;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ *
+ * Thread safe pool of direct byte buffers of the same size.
+ * At most maxPooled released buffers are kept, the others are left to the garbage collector.
+ */
+public class ByteBufferPool
+{
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+	public static final int DEFAULT_MAX_POOLED = 64;
+
+	private static final ByteBufferPool DEFAULT = new ByteBufferPool(DEFAULT_BUFFER_SIZE, DEFAULT_MAX_POOLED);
+
+	private final int bufferSize;
+	private final int maxPooled;
+	private final ConcurrentLinkedQueue<ByteBuffer> free = new ConcurrentLinkedQueue<ByteBuffer>();
+	private final AtomicInteger pooled = new AtomicInteger();
+
+	public ByteBufferPool(int bufferSize, int maxPooled)
+	{
+		if(bufferSize < 1)
+		{
+			throw new IllegalArgumentException("bufferSize should be positive");
+		}
+		this.bufferSize = bufferSize;
+		this.maxPooled = maxPooled;
+	}
+
+	/**
+	 * @return the pool shared by default by all the renderers
+	 */
+	public static ByteBufferPool getDefault()
+	{
+		return DEFAULT;
+	}
+
+	/**
+	 * @return a cleared buffer, reused from the pool if available
+	 */
+	public ByteBuffer acquire()
+	{
+		ByteBuffer buffer = free.poll();
+		if(buffer == null)
+		{
+			return ByteBuffer.allocateDirect(bufferSize);
+		}
+
+		pooled.decrementAndGet();
+		buffer.clear();
+		return buffer;
+	}
+
+	/**
+	 * @param buffer - a buffer acquired from this pool, not to be used after release
+	 */
+	public void release(ByteBuffer buffer)
+	{
+		if(buffer.capacity() != bufferSize)
+		{
+			return;
+		}
+
+		if(pooled.incrementAndGet() <= maxPooled)
+		{
+			free.offer(buffer);
+		}
+		else
+		{
+			pooled.decrementAndGet();
+		}
+	}
+
+	public int getBufferSize()
+	{
+		return bufferSize;
+	}
+}
@@ -0,0 +1,14 @@
+package it.alagna.salextaxes.io;
+
+import it.alagna.salextaxes.model.OrderModel;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+public interface IOrderReader extends Closeable {
+
+	/**
+	 * @return the next order, or null if there are no more orders
+	 */
+	OrderModel read() throws IOException;
+}
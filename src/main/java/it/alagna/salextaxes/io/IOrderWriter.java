@@ -0,0 +1,12 @@
+package it.alagna.salextaxes.io;
+
+import it.alagna.salextaxes.model.OrderModel;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+
+public interface IOrderWriter extends Closeable, Flushable {
+
+	void write(OrderModel order) throws IOException;
+}
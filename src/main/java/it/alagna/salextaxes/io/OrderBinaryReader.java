@@ -0,0 +1,76 @@
+package it.alagna.salextaxes.io;
+
+import it.alagna.salextaxes.exception.OrderFormatException;
+import it.alagna.salextaxes.model.OrderEntryModel;
+import it.alagna.salextaxes.model.OrderModel;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ * Reads orders in the binary format written by {@link OrderBinaryWriter}.
+ */
+public class OrderBinaryReader implements IOrderReader
+{
+	private final DataInputStream in;
+
+	public OrderBinaryReader(InputStream in)
+	{
+		this.in = new DataInputStream(new BufferedInputStream(in, 64 * 1024));
+	}
+
+	public OrderModel read() throws IOException
+	{
+		int size;
+		try
+		{
+			size = in.readInt();
+		}
+		catch (EOFException e)
+		{
+			return null;
+		}
+
+		if(size < 0)
+		{
+			throw new OrderFormatException("Invalid number of entries: " + size);
+		}
+
+		List<OrderEntryModel> entries = new ArrayList<OrderEntryModel>(size);
+		try
+		{
+			for(int i = 0; i < size; i++)
+			{
+				OrderEntryModel entry = new OrderEntryModel();
+				entry.setQuantity(in.readInt());
+				int flags = in.readByte();
+				entry.setImported((flags & OrderBinaryWriter.FLAG_IMPORTED) != 0);
+				entry.setTaxExempt((flags & OrderBinaryWriter.FLAG_TAX_EXEMPT) != 0);
+				int scale = in.readInt();
+				entry.setPricePerUnit(BigDecimal.valueOf(in.readLong(), scale));
+				entry.setDescription(in.readUTF());
+				entries.add(entry);
+			}
+		}
+		catch (EOFException e)
+		{
+			throw new OrderFormatException("Truncated order, expected " + size + " entries");
+		}
+
+		OrderModel order = new OrderModel();
+		order.setEntries(entries);
+		return order;
+	}
+
+	public void close() throws IOException
+	{
+		in.close();
+	}
+}
@@ -0,0 +1,68 @@
+package it.alagna.salextaxes.io;
+
+import it.alagna.salextaxes.exception.OrderFormatException;
+import it.alagna.salextaxes.model.OrderEntryModel;
+import it.alagna.salextaxes.model.OrderModel;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ *
+ * Writes orders in the binary format read by {@link OrderBinaryReader}.
+ * </br></br>
+ * Every order is written as its number of entries (int), followed by its entries.
+ * Every entry is written as quantity (int), flags (byte, see {@link #FLAG_IMPORTED} and {@link #FLAG_TAX_EXEMPT}),
+ * price per unit scale (int) and unscaled value (long), and description (modified UTF-8).
+ */
+public class OrderBinaryWriter implements IOrderWriter
+{
+	public static final int FLAG_IMPORTED = 1;
+	public static final int FLAG_TAX_EXEMPT = 2;
+
+	private final DataOutputStream out;
+
+	public OrderBinaryWriter(OutputStream out)
+	{
+		this.out = new DataOutputStream(new BufferedOutputStream(out, 64 * 1024));
+	}
+
+	public void write(OrderModel order) throws IOException
+	{
+		List<OrderEntryModel> entries = order.getEntries();
+		out.writeInt(entries.size());
+
+		for(OrderEntryModel entry : entries)
+		{
+			BigDecimal pricePerUnit = entry.getPricePerUnit();
+			if(pricePerUnit == null || entry.getDescription() == null)
+			{
+				throw new OrderFormatException("pricePerUnit and description are required: " + entry);
+			}
+			if(pricePerUnit.unscaledValue().bitLength() > 63)
+			{
+				throw new OrderFormatException("pricePerUnit too large: " + pricePerUnit);
+			}
+
+			out.writeInt(entry.getQuantity());
+			out.writeByte((entry.isImported() ? FLAG_IMPORTED : 0) | (entry.isTaxExempt() ? FLAG_TAX_EXEMPT : 0));
+			out.writeInt(pricePerUnit.scale());
+			out.writeLong(pricePerUnit.unscaledValue().longValue());
+			out.writeUTF(entry.getDescription());
+		}
+	}
+
+	public void flush() throws IOException
+	{
+		out.flush();
+	}
+
+	public void close() throws IOException
+	{
+		out.close();
+	}
+}
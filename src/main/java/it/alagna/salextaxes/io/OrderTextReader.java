@@ -0,0 +1,240 @@
+package it.alagna.salextaxes.io;
+
+import it.alagna.salextaxes.exception.OrderFormatException;
+import it.alagna.salextaxes.model.OrderEntryModel;
+import it.alagna.salextaxes.model.OrderModel;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ * Reads orders in the text format written by {@link OrderTextWriter}:</br>
+ * <code>&lt;quantity&gt;[ imported] &lt;description&gt; at &lt;price&gt; each[ (exempt)]</code>
+ * </br></br>
+ * Orders are separated by one or more empty lines.
+ * The reader keeps track of the byte position of the input right after the last order read,
+ * so that a later reader can resume from there, and of the byte position of its first line,
+ * so that a reader of a byte range can tell the orders starting in the range.
+ * </br></br>
+ * A description starting with "imported " cannot be told apart from an imported entry,
+ * and is always read as such.
+ */
+public class OrderTextReader implements IOrderReader
+{
+	private static final String IMPORTED_PREFIX = OrderEntryModel.IMPORTED_STRING.substring(1) + " ";
+	private static final String PRICE_SEPARATOR = " at ";
+	private static final String PRICE_SUFFIX = " each";
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final InputStream in;
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private int bufferPosition;
+	private int bufferLimit;
+
+	private byte[] line = new byte[256];
+	private int lineLength;
+
+	private long position;
+	private long orderStart;
+	private long orderEnd;
+	private long lineNumber;
+
+	public OrderTextReader(InputStream in)
+	{
+		this(in, 0);
+	}
+
+	/**
+	 * @param in - the input, already positioned at startPosition
+	 * @param startPosition - the byte position of the input in the whole file
+	 */
+	public OrderTextReader(InputStream in, long startPosition)
+	{
+		this.in = in;
+		this.position = startPosition;
+		this.orderStart = startPosition;
+		this.orderEnd = startPosition;
+	}
+
+	public OrderModel read() throws IOException
+	{
+		List<OrderEntryModel> entries = null;
+		long lineStart = position;
+
+		while(readLine())
+		{
+			if(lineLength == 0)
+			{
+				if(entries != null)
+				{
+					orderEnd = position;
+					break;
+				}
+				lineStart = position;
+				continue;
+			}
+
+			if(entries == null)
+			{
+				entries = new ArrayList<OrderEntryModel>();
+				orderStart = lineStart;
+			}
+			entries.add(parseEntry(new String(line, 0, lineLength, StandardCharsets.UTF_8)));
+			orderEnd = position;
+		}
+
+		if(entries == null)
+		{
+			orderStart = position;
+			orderEnd = position;
+			return null;
+		}
+
+		OrderModel order = new OrderModel();
+		order.setEntries(entries);
+		return order;
+	}
+
+	/**
+	 * @return the byte position of the first line of the last order read, after the empty lines preceding it,
+	 *         or the end of the input if there are no more orders
+	 */
+	public long getOrderStart()
+	{
+		return orderStart;
+	}
+
+	/**
+	 * @return the byte position right after the last order read, including its terminating empty line
+	 */
+	public long getPosition()
+	{
+		return orderEnd;
+	}
+
+	public void close() throws IOException
+	{
+		in.close();
+	}
+
+	/**
+	 * Parses a single entry line.
+	 *
+	 * @param text - the line to parse, without line terminator
+	 * @return the parsed entry
+	 * @throws OrderFormatException if the line is not a valid entry
+	 */
+	public OrderEntryModel parseEntry(String text) throws OrderFormatException
+	{
+		OrderEntryModel entry = new OrderEntryModel();
+		String remaining = text;
+
+		if(remaining.endsWith(OrderTextWriter.EXEMPT_SUFFIX))
+		{
+			entry.setTaxExempt(true);
+			remaining = remaining.substring(0, remaining.length() - OrderTextWriter.EXEMPT_SUFFIX.length());
+		}
+
+		int priceStart = remaining.lastIndexOf(PRICE_SEPARATOR);
+		int quantityEnd = remaining.indexOf(' ');
+		if(!remaining.endsWith(PRICE_SUFFIX) || priceStart < 0 || quantityEnd <= 0 || quantityEnd >= priceStart)
+		{
+			throw malformed(text);
+		}
+
+		try
+		{
+			entry.setQuantity(Integer.parseInt(remaining.substring(0, quantityEnd)));
+			entry.setPricePerUnit(new BigDecimal(remaining.substring(priceStart + PRICE_SEPARATOR.length(), remaining.length() - PRICE_SUFFIX.length())));
+		}
+		catch (NumberFormatException e)
+		{
+			throw malformed(text);
+		}
+
+		String description = remaining.substring(quantityEnd + 1, priceStart);
+		if(description.startsWith(IMPORTED_PREFIX))
+		{
+			entry.setImported(true);
+			description = description.substring(IMPORTED_PREFIX.length());
+		}
+		entry.setDescription(description);
+
+		return entry;
+	}
+
+	private OrderFormatException malformed(String text)
+	{
+		return new OrderFormatException("Malformed entry at line " + lineNumber + ": " + text);
+	}
+
+	/**
+	 * Reads the next line into {@link #line}, without its terminator.
+	 *
+	 * @return false if the input is over
+	 */
+	private boolean readLine() throws IOException
+	{
+		lineLength = 0;
+		boolean read = false;
+
+		while(true)
+		{
+			if(bufferPosition == bufferLimit)
+			{
+				bufferLimit = in.read(buffer);
+				bufferPosition = 0;
+				if(bufferLimit <= 0)
+				{
+					bufferLimit = 0;
+					break;
+				}
+			}
+
+			read = true;
+			int start = bufferPosition;
+			while(bufferPosition < bufferLimit && buffer[bufferPosition] != '\n')
+			{
+				bufferPosition++;
+			}
+			appendToLine(start, bufferPosition - start);
+
+			if(bufferPosition < bufferLimit)
+			{
+				bufferPosition++;
+				position += bufferPosition - start;
+				break;
+			}
+			position += bufferPosition - start;
+		}
+
+		if(!read)
+		{
+			return false;
+		}
+
+		if(lineLength > 0 && line[lineLength - 1] == '\r')
+		{
+			lineLength--;
+		}
+		lineNumber++;
+		return true;
+	}
+
+	private void appendToLine(int start, int length)
+	{
+		if(lineLength + length > line.length)
+		{
+			byte[] grown = new byte[Math.max(line.length * 2, lineLength + length)];
+			System.arraycopy(line, 0, grown, 0, lineLength);
+			line = grown;
+		}
+		System.arraycopy(buffer, start, line, lineLength, length);
+		lineLength += length;
+	}
+}
@@ -0,0 +1,56 @@
+package it.alagna.salextaxes.io;
+
+import it.alagna.salextaxes.model.OrderEntryModel;
+import it.alagna.salextaxes.model.OrderModel;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ *
+ * Writes orders in the text format read by {@link OrderTextReader}.
+ * </br></br>
+ * Every entry is written on its own line as {@link OrderEntryModel#toString()},
+ * followed by {@link #EXEMPT_SUFFIX} if the entry is tax exempt.
+ * Every order is terminated by an empty line.
+ */
+public class OrderTextWriter implements IOrderWriter
+{
+	public static final String EXEMPT_SUFFIX = " (exempt)";
+
+	private final Writer writer;
+
+	public OrderTextWriter(OutputStream out)
+	{
+		this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+	}
+
+	public void write(OrderModel order) throws IOException
+	{
+		for(OrderEntryModel entry : order.getEntries())
+		{
+			writer.write(entry.toString());
+			if(entry.isTaxExempt())
+			{
+				writer.write(EXEMPT_SUFFIX);
+			}
+			writer.write('\n');
+		}
+
+		writer.write('\n');
+	}
+
+	public void flush() throws IOException
+	{
+		writer.flush();
+	}
+
+	public void close() throws IOException
+	{
+		writer.close();
+	}
+}
@@ -0,0 +1,382 @@
+package it.alagna.salextaxes.io;
+
+import it.alagna.salextaxes.exception.OrderEntryException;
+import it.alagna.salextaxes.model.OrderEntryModel;
+import it.alagna.salextaxes.model.OrderModel;
+import it.alagna.salextaxes.model.OrderResultModel;
+import it.alagna.salextaxes.model.TaxRateModel;
+import it.alagna.salextaxes.service.IOrderService;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Currency;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *
+ * Renders the receipts of many orders directly as UTF-8 bytes into buffers taken from a {@link ByteBufferPool}.
+ * When all the buffers are full they are written to the channel at once, with a gathering write if the channel supports it.
+ * </br></br>
+ * The bytes of every receipt are identical to {@link IOrderService#toOutputString(OrderModel)} encoded in UTF-8,
+ * followed by the separator, as long as the default locale formats integers with ASCII digits.
+ * Amounts with 2 decimal places are encoded from their cents; other amounts fall back to {@link BigDecimal#toString()}.
+ */
+public class ReceiptByteRenderer implements Closeable, Flushable
+{
+	public static final int DEFAULT_BUFFERS = 4;
+	public static final String RECEIPT_SEPARATOR = "\n\n"; // an empty line after every receipt
+
+	private static final byte[] IMPORTED_BYTES = utf8(OrderEntryModel.IMPORTED_STRING);
+	private static final byte[] TOTAL_PRICE_SEPARATOR_BYTES = utf8(": ");
+	private static final byte[] SALES_TAXES_BYTES = utf8("Sales Taxes: ");
+	private static final byte[] TOTAL_BYTES = utf8("Total: ");
+
+	private final IOrderService orderService;
+	private final WritableByteChannel channel;
+	private final byte[] separator;
+	private final ByteBufferPool pool;
+	private final ByteBuffer[] buffers;
+	private final byte[] digits = new byte[20];
+
+	private int current;
+	private long bytesWritten;
+
+	/**
+	 * @param orderService - the service evaluating the orders
+	 * @param channel - the destination of the receipts
+	 * @param separator - the text written after every receipt
+	 */
+	public ReceiptByteRenderer(IOrderService orderService, WritableByteChannel channel, String separator)
+	{
+		this(orderService, channel, separator, ByteBufferPool.getDefault(), DEFAULT_BUFFERS);
+	}
+
+	/**
+	 * @param orderService - the service evaluating the orders
+	 * @param channel - the destination of the receipts
+	 * @param separator - the text written after every receipt
+	 * @param pool - the pool providing the buffers, which are given back on close
+	 * @param buffers - the number of buffers filled before a write to the channel
+	 */
+	public ReceiptByteRenderer(IOrderService orderService, WritableByteChannel channel, String separator, ByteBufferPool pool, int buffers)
+	{
+		if(buffers < 1)
+		{
+			throw new IllegalArgumentException("buffers should be positive");
+		}
+
+		this.orderService = orderService;
+		this.channel = channel;
+		this.separator = utf8(separator);
+		this.pool = pool;
+		this.buffers = new ByteBuffer[buffers];
+		for(int i = 0; i < buffers; i++)
+		{
+			this.buffers[i] = pool.acquire();
+		}
+	}
+
+	/**
+	 * Renders the receipt of an order, followed by the separator.
+	 * All the amounts of the receipt are evaluated at the tax rates of the order.
+	 *
+	 * @param order - the order to render
+	 * @return the evaluation of the order
+	 * @throws OrderEntryException if any entry cannot be evaluated, in which case nothing is rendered
+	 * @throws IOException if full buffers cannot be written to the channel
+	 */
+	public OrderResultModel render(OrderModel order) throws OrderEntryException, IOException
+	{
+		return render(order, orderService.getTaxRates(order));
+	}
+	
+	/**
+	 * Renders the receipt of an order at the given tax rates, followed by the separator.
+	 * The whole order is evaluated before its first byte is rendered.
+	 *
+	 * @param order - the order to render
+	 * @param rates - the tax rates of the order, see {@link IOrderService#getTaxRates(OrderModel)}
+	 * @return the evaluation of the order
+	 * @throws OrderEntryException if any entry cannot be evaluated, in which case nothing is rendered
+	 * @throws IOException if full buffers cannot be written to the channel
+	 */
+	public OrderResultModel render(OrderModel order, TaxRateModel rates) throws OrderEntryException, IOException
+	{
+		OrderResultModel result = orderService.evaluate(order, rates);
+		render(order, result);
+		return result;
+	}
+	
+	/**
+	 * Renders the receipt of an order already evaluated, followed by the separator.
+	 *
+	 * @param order - the order to render
+	 * @param result - the evaluation of the order, see {@link IOrderService#evaluate(OrderModel, TaxRateModel)}
+	 * @throws IOException if full buffers cannot be written to the channel
+	 */
+	public void render(OrderModel order, OrderResultModel result) throws IOException
+	{
+		List<OrderEntryModel> entries = order.getEntries();
+		for(int i = 0; i < entries.size(); i++)
+		{
+			OrderEntryModel entry = entries.get(i);
+			putLong(entry.getQuantity());
+			if(entry.isImported())
+			{
+				put(IMPORTED_BYTES);
+			}
+			put((byte) ' ');
+			putString(String.valueOf(entry.getDescription()));
+			put(TOTAL_PRICE_SEPARATOR_BYTES);
+			putAmount(result.getEntryPrices().get(i));
+			if(result.isMixedCurrencies())
+			{
+				putCurrency(entry.getCurrency());
+			}
+			put((byte) '\n');
+		}
+		
+		if(!result.isMixedCurrencies())
+		{
+			put(SALES_TAXES_BYTES);
+			putAmount(result.getTotalTaxes());
+			put((byte) '\n');
+			put(TOTAL_BYTES);
+			putAmount(result.getTotalPrice());
+		}
+		else
+		{
+			putByCurrency(SALES_TAXES_BYTES, result.getTotalTaxesByCurrency());
+			put((byte) '\n');
+			putByCurrency(TOTAL_BYTES, result.getTotalPriceByCurrency());
+		}
+		put(separator);
+	}
+	
+	/**
+	 * Writes all the rendered bytes to the channel.
+	 */
+	public void flush() throws IOException
+	{
+		int used = buffers[current].position() > 0 ? current + 1 : current;
+		if(used == 0)
+		{
+			return;
+		}
+
+		long remaining = 0;
+		for(int i = 0; i < used; i++)
+		{
+			buffers[i].flip();
+			remaining += buffers[i].remaining();
+		}
+
+		if(channel instanceof GatheringByteChannel)
+		{
+			while(remaining > 0)
+			{
+				remaining -= ((GatheringByteChannel) channel).write(buffers, 0, used);
+			}
+		}
+		else
+		{
+			for(int i = 0; i < used; i++)
+			{
+				while(buffers[i].hasRemaining())
+				{
+					channel.write(buffers[i]);
+				}
+			}
+		}
+
+		for(int i = 0; i < used; i++)
+		{
+			bytesWritten += buffers[i].limit();
+			buffers[i].clear();
+		}
+		current = 0;
+	}
+
+	/**
+	 * @return the number of bytes written to the channel so far, excluding the ones still buffered
+	 */
+	public long getBytesWritten()
+	{
+		return bytesWritten;
+	}
+
+	/**
+	 * @return the number of bytes rendered so far, including the ones still buffered
+	 */
+	public long getBytesRendered()
+	{
+		long rendered = bytesWritten;
+		for(int i = 0; i <= current; i++)
+		{
+			rendered += buffers[i].position();
+		}
+		return rendered;
+	}
+
+	/**
+	 * Flushes the rendered bytes and gives the buffers back to the pool. The channel is not closed.
+	 */
+	public void close() throws IOException
+	{
+		try
+		{
+			flush();
+		}
+		finally
+		{
+			for(int i = 0; i < buffers.length; i++)
+			{
+				if(buffers[i] != null)
+				{
+					pool.release(buffers[i]);
+					buffers[i] = null;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Puts a line for every currency, with the currency code after the amount, without the last line break.
+	 */
+	private void putByCurrency(byte[] label, Map<Currency, BigDecimal> totals) throws IOException
+	{
+		boolean first = true;
+		for(Map.Entry<Currency, BigDecimal> total : totals.entrySet())
+		{
+			if(!first)
+			{
+				put((byte) '\n');
+			}
+			first = false;
+			put(label);
+			putAmount(total.getValue());
+			putCurrency(total.getKey());
+		}
+	}
+
+	private void putCurrency(Currency currency) throws IOException
+	{
+		if(currency != null)
+		{
+			put((byte) ' ');
+			putString(currency.getCurrencyCode());
+		}
+	}
+
+	private void putAmount(BigDecimal amount) throws IOException
+	{
+		if(amount.scale() != 2 || amount.unscaledValue().bitLength() > 62)
+		{
+			putString(amount.toString());
+			return;
+		}
+
+		long cents = amount.unscaledValue().longValue();
+		if(cents < 0)
+		{
+			put((byte) '-');
+			cents = -cents;
+		}
+		putLong(cents / 100);
+		put((byte) '.');
+		put((byte) ('0' + cents / 10 % 10));
+		put((byte) ('0' + cents % 10));
+	}
+
+	private void putLong(long value) throws IOException
+	{
+		if(value < 0)
+		{
+			put((byte) '-');
+		}
+
+		int length = 0;
+		do
+		{
+			digits[length++] = (byte) ('0' + Math.abs(value % 10));
+			value /= 10;
+		}
+		while(value != 0);
+
+		while(length > 0)
+		{
+			put(digits[--length]);
+		}
+	}
+
+	private void putString(String text) throws IOException
+	{
+		for(int i = 0; i < text.length(); i++)
+		{
+			char c = text.charAt(i);
+			if(c < 0x80)
+			{
+				put((byte) c);
+			}
+			else if(c < 0x800)
+			{
+				put((byte) (0xC0 | c >> 6));
+				put((byte) (0x80 | c & 0x3F));
+			}
+			else if(Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1)))
+			{
+				int codePoint = Character.toCodePoint(c, text.charAt(++i));
+				put((byte) (0xF0 | codePoint >> 18));
+				put((byte) (0x80 | codePoint >> 12 & 0x3F));
+				put((byte) (0x80 | codePoint >> 6 & 0x3F));
+				put((byte) (0x80 | codePoint & 0x3F));
+			}
+			else if(Character.isSurrogate(c))
+			{
+				// unpaired surrogate, replaced as String.getBytes does
+				put((byte) '?');
+			}
+			else
+			{
+				put((byte) (0xE0 | c >> 12));
+				put((byte) (0x80 | c >> 6 & 0x3F));
+				put((byte) (0x80 | c & 0x3F));
+			}
+		}
+	}
+
+	private void put(byte[] bytes) throws IOException
+	{
+		for(byte b : bytes)
+		{
+			put(b);
+		}
+	}
+
+	private void put(byte b) throws IOException
+	{
+		ByteBuffer buffer = buffers[current];
+		if(!buffer.hasRemaining())
+		{
+			if(++current == buffers.length)
+			{
+				current = buffers.length - 1;
+				flush();
+			}
+			buffer = buffers[current];
+		}
+		buffer.put(b);
+	}
+
+	private static byte[] utf8(String text)
+	{
+		return text.getBytes(StandardCharsets.UTF_8);
+	}
+}
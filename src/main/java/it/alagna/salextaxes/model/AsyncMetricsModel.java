@@ -0,0 +1,83 @@
+package it.alagna.salextaxes.model;
+
+/**
+ * 
+ * Snapshot of the counters of an asynchronous pricing facade: how many requests were batched together,
+ * and how long they waited in the queue before their batch was evaluated.
+ */
+public class AsyncMetricsModel {
+
+	private long requests;
+	private long rejected;
+	private long batches;
+	private int maxBatchSize;
+	private long totalWaitNanos;
+	private long maxWaitNanos;
+	private int queued;
+	
+	/**
+	 * @return the average number of requests per batch, or 0 if no batch was evaluated
+	 */
+	public double getAverageBatchSize() {
+		return batches > 0 ? (double) requests / batches : 0;
+	}
+	
+	/**
+	 * @return the average time a request waited before its batch was evaluated, or 0 if no request was evaluated
+	 */
+	public double getAverageWaitNanos() {
+		return requests > 0 ? (double) totalWaitNanos / requests : 0;
+	}
+	
+	/**
+	 * @return the number of requests dispatched for evaluation
+	 */
+	public long getRequests() {
+		return requests;
+	}
+	public void setRequests(long requests) {
+		this.requests = requests;
+	}
+	/**
+	 * @return the number of requests rejected because the queue was full or the facade closed
+	 */
+	public long getRejected() {
+		return rejected;
+	}
+	public void setRejected(long rejected) {
+		this.rejected = rejected;
+	}
+	public long getBatches() {
+		return batches;
+	}
+	public void setBatches(long batches) {
+		this.batches = batches;
+	}
+	public int getMaxBatchSize() {
+		return maxBatchSize;
+	}
+	public void setMaxBatchSize(int maxBatchSize) {
+		this.maxBatchSize = maxBatchSize;
+	}
+	public long getTotalWaitNanos() {
+		return totalWaitNanos;
+	}
+	public void setTotalWaitNanos(long totalWaitNanos) {
+		this.totalWaitNanos = totalWaitNanos;
+	}
+	public long getMaxWaitNanos() {
+		return maxWaitNanos;
+	}
+	public void setMaxWaitNanos(long maxWaitNanos) {
+		this.maxWaitNanos = maxWaitNanos;
+	}
+	/**
+	 * @return the number of requests waiting in the queue when the snapshot was taken
+	 */
+	public int getQueued() {
+		return queued;
+	}
+	public void setQueued(int queued) {
+		this.queued = queued;
+	}
+}
@@ -0,0 +1,66 @@
+package it.alagna.salextaxes.model;
+
+import java.math.BigDecimal;
+
+/**
+ * 
+ * Progress of a batch pricing run: counters and running totals of the orders processed so far,
+ * and the byte offsets in the input and output files right after the last order processed.
+ */
+public class BatchResultModel {
+
+	private long orders;
+	private long entries;
+	private BigDecimal totalTaxes = BigDecimal.ZERO.setScale(2);
+	private BigDecimal totalPrice = BigDecimal.ZERO.setScale(2);
+	private long inputOffset;
+	private long outputOffset;
+	
+	/**
+	 * Adds a processed order to the counters and totals.
+	 */
+	public void add(int entries, BigDecimal totalTaxes, BigDecimal totalPrice)
+	{
+		this.orders++;
+		this.entries += entries;
+		this.totalTaxes = this.totalTaxes.add(totalTaxes);
+		this.totalPrice = this.totalPrice.add(totalPrice);
+	}
+	
+	public long getOrders() {
+		return orders;
+	}
+	public void setOrders(long orders) {
+		this.orders = orders;
+	}
+	public long getEntries() {
+		return entries;
+	}
+	public void setEntries(long entries) {
+		this.entries = entries;
+	}
+	public BigDecimal getTotalTaxes() {
+		return totalTaxes;
+	}
+	public void setTotalTaxes(BigDecimal totalTaxes) {
+		this.totalTaxes = totalTaxes;
+	}
+	public BigDecimal getTotalPrice() {
+		return totalPrice;
+	}
+	public void setTotalPrice(BigDecimal totalPrice) {
+		this.totalPrice = totalPrice;
+	}
+	public long getInputOffset() {
+		return inputOffset;
+	}
+	public void setInputOffset(long inputOffset) {
+		this.inputOffset = inputOffset;
+	}
+	public long getOutputOffset() {
+		return outputOffset;
+	}
+	public void setOutputOffset(long outputOffset) {
+		this.outputOffset = outputOffset;
+	}
+}
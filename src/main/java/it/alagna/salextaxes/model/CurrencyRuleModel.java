@@ -0,0 +1,100 @@
+package it.alagna.salextaxes.model;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+
+/**
+ * 
+ * Pricing rule of a currency: the number of minor digits of its amounts and the increment taxes are rounded up to.
+ * The increment is also kept in minor units, so that taxes can be evaluated with integer arithmetic.
+ * </br></br>
+ * A rule without an increment leaves the cash rounding to the tax rates: taxes are rounded up to the
+ * {@link TaxRateModel#getRoundingFactor() rounding factor} of the version in effect, as for entries without a currency,
+ * or to the minor unit if the factor is finer. A rule with an increment rounds to it in every version of the rates.
+ * Immutable.
+ */
+public class CurrencyRuleModel {
+
+	public static final int MAX_MINOR_DIGITS = 6;
+	
+	private final Currency currency;
+	private final int minorDigits;
+	private final BigDecimal roundingIncrement;
+	private final long roundingIncrementMinorUnits;
+	
+	/**
+	 * Creates a rule rounding taxes to the rounding factor of the tax rates.
+	 * 
+	 * @param currency - the currency of the rule
+	 * @param minorDigits - the number of decimal places of the amounts, from 0 to {@link #MAX_MINOR_DIGITS}
+	 */
+	public CurrencyRuleModel(Currency currency, int minorDigits)
+	{
+		if(currency == null)
+		{
+			throw new IllegalArgumentException("currency is required");
+		}
+		checkMinorDigits(minorDigits);
+		
+		this.currency = currency;
+		this.minorDigits = minorDigits;
+		this.roundingIncrement = null;
+		this.roundingIncrementMinorUnits = 0;
+	}
+	
+	/**
+	 * @param currency - the currency of the rule
+	 * @param minorDigits - the number of decimal places of the amounts, from 0 to {@link #MAX_MINOR_DIGITS}
+	 * @param roundingIncrement - the increment taxes are rounded up to, a positive multiple of the minor unit
+	 */
+	public CurrencyRuleModel(Currency currency, int minorDigits, BigDecimal roundingIncrement)
+	{
+		if(currency == null || roundingIncrement == null)
+		{
+			throw new IllegalArgumentException("currency and roundingIncrement are required");
+		}
+		checkMinorDigits(minorDigits);
+		if(roundingIncrement.signum() <= 0 || roundingIncrement.stripTrailingZeros().scale() > minorDigits)
+		{
+			throw new IllegalArgumentException("roundingIncrement should be a positive multiple of the minor unit of " + currency);
+		}
+		
+		this.currency = currency;
+		this.minorDigits = minorDigits;
+		this.roundingIncrement = roundingIncrement.setScale(minorDigits);
+		this.roundingIncrementMinorUnits = roundingIncrement.movePointRight(minorDigits).longValueExact();
+	}
+	
+	private static void checkMinorDigits(int minorDigits)
+	{
+		if(minorDigits < 0 || minorDigits > MAX_MINOR_DIGITS)
+		{
+			throw new IllegalArgumentException("minorDigits should be between 0 and " + MAX_MINOR_DIGITS);
+		}
+	}
+	
+	@Override
+	public String toString()
+	{
+		return currency + ": " + minorDigits + " minor digits, rounding " + (roundingIncrement != null ? roundingIncrement : "as the tax rates");
+	}
+
+	public Currency getCurrency() {
+		return currency;
+	}
+	public int getMinorDigits() {
+		return minorDigits;
+	}
+	/**
+	 * @return the increment taxes are rounded up to, or null if they are rounded to the rounding factor of the tax rates
+	 */
+	public BigDecimal getRoundingIncrement() {
+		return roundingIncrement;
+	}
+	/**
+	 * @return the rounding increment in minor units, e.g. 5 for 0.05 with 2 minor digits, or 0 without an increment
+	 */
+	public long getRoundingIncrementMinorUnits() {
+		return roundingIncrementMinorUnits;
+	}
+}
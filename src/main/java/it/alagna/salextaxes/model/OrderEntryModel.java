@@ -1,6 +1,7 @@
 package it.alagna.salextaxes.model;
 
 import java.math.BigDecimal;
+import java.util.Currency;
 
 public class OrderEntryModel {
 	
@@ -16,6 +17,11 @@ public class OrderEntryModel {
 	private boolean imported = false;
 	private boolean taxExempt = false;
 	private BigDecimal pricePerUnit;
+	private Currency currency;
+	
+	// derived values, computed lazily and cleared by the setters of the fields they depend on
+	private String fullDescription;
+	private BigDecimal netPrice;
 	
 	@Override
 	public String toString()
@@ -25,8 +31,12 @@ public class OrderEntryModel {
 	
 	public String getFullDescription()
 	{
-		String importedString = imported ? IMPORTED_STRING : "";
-		return String.format(FULL_DESCRIPTION_FORMAT, quantity, importedString, description, pricePerUnit);
+		if(fullDescription == null)
+		{
+			String importedString = imported ? IMPORTED_STRING : "";
+			fullDescription = String.format(FULL_DESCRIPTION_FORMAT, quantity, importedString, description, pricePerUnit);
+		}
+		return fullDescription;
 	}
 	
 	public String getPricePerUnitDescription()
@@ -39,23 +49,39 @@ public class OrderEntryModel {
 		return getFullDescription() + String.format(TOTALPRICE_DESCRIPTION_FORMAT, totalPrice);
 	}
 	
+	/**
+	 * @return pricePerUnit * quantity, or null if pricePerUnit is not set
+	 */
+	public BigDecimal getNetPrice()
+	{
+		if(netPrice == null && pricePerUnit != null)
+		{
+			netPrice = pricePerUnit.multiply(BigDecimal.valueOf(quantity));
+		}
+		return netPrice;
+	}
+	
 	public int getQuantity() {
 		return quantity;
 	}
 	public void setQuantity(int quantity) {
 		this.quantity = quantity;
+		fullDescription = null;
+		netPrice = null;
 	}
 	public String getDescription() {
 		return description;
 	}
 	public void setDescription(String description) {
 		this.description = description;
+		fullDescription = null;
 	}
 	public boolean isImported() {
 		return imported;
 	}
 	public void setImported(boolean imported) {
 		this.imported = imported;
+		fullDescription = null;
 	}
 	public boolean isTaxExempt() {
 		return taxExempt;
@@ -68,5 +94,15 @@ public class OrderEntryModel {
 	}
 	public void setPricePerUnit(BigDecimal pricePerUnit) {
 		this.pricePerUnit = pricePerUnit;
+		netPrice = null;
+	}
+	/**
+	 * @return the currency of pricePerUnit, or null for amounts priced with the rounding factor of the tax rates
+	 */
+	public Currency getCurrency() {
+		return currency;
+	}
+	public void setCurrency(Currency currency) {
+		this.currency = currency;
 	}
 }
@@ -1,11 +1,13 @@
 package it.alagna.salextaxes.model;
 
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 
 public class OrderModel {
 
 	List<OrderEntryModel> entries;
+	Instant timestamp;
 	
 	public List<OrderEntryModel> getEntries() {
 		if(entries == null)
@@ -19,4 +21,15 @@ public class OrderModel {
 	public void setEntries(List<OrderEntryModel> entries) {
 		this.entries = entries;
 	}
+
+	/**
+	 * @return the instant the order was placed, selecting its tax rates, or null to price it at the current rates
+	 */
+	public Instant getTimestamp() {
+		return timestamp;
+	}
+
+	public void setTimestamp(Instant timestamp) {
+		this.timestamp = timestamp;
+	}
 }
@@ -0,0 +1,85 @@
+package it.alagna.salextaxes.model;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 
+ * Evaluation of a whole order: the total price of every entry, in entry order,
+ * and the totals of the order, all at the same tax rates.
+ * </br></br>
+ * The totals are also kept for every currency of the entries, in order of first appearance,
+ * with entries without currency under the null key. When the entries have different currencies
+ * there is no single total, and totalTaxes and totalPrice are null.
+ */
+public class OrderResultModel {
+
+	private TaxRateModel rates;
+	private List<BigDecimal> entryPrices;
+	private BigDecimal totalTaxes;
+	private BigDecimal totalPrice;
+	private Map<Currency, BigDecimal> totalTaxesByCurrency;
+	private Map<Currency, BigDecimal> totalPriceByCurrency;
+	
+	public TaxRateModel getRates() {
+		return rates;
+	}
+	public void setRates(TaxRateModel rates) {
+		this.rates = rates;
+	}
+	public List<BigDecimal> getEntryPrices() {
+		if(entryPrices == null)
+		{
+			entryPrices = new ArrayList<BigDecimal>();
+		}
+		
+		return entryPrices;
+	}
+	public void setEntryPrices(List<BigDecimal> entryPrices) {
+		this.entryPrices = entryPrices;
+	}
+	public BigDecimal getTotalTaxes() {
+		return totalTaxes;
+	}
+	public void setTotalTaxes(BigDecimal totalTaxes) {
+		this.totalTaxes = totalTaxes;
+	}
+	public BigDecimal getTotalPrice() {
+		return totalPrice;
+	}
+	public void setTotalPrice(BigDecimal totalPrice) {
+		this.totalPrice = totalPrice;
+	}
+	public Map<Currency, BigDecimal> getTotalTaxesByCurrency() {
+		if(totalTaxesByCurrency == null)
+		{
+			totalTaxesByCurrency = new LinkedHashMap<Currency, BigDecimal>();
+		}
+		
+		return totalTaxesByCurrency;
+	}
+	public void setTotalTaxesByCurrency(Map<Currency, BigDecimal> totalTaxesByCurrency) {
+		this.totalTaxesByCurrency = totalTaxesByCurrency;
+	}
+	public Map<Currency, BigDecimal> getTotalPriceByCurrency() {
+		if(totalPriceByCurrency == null)
+		{
+			totalPriceByCurrency = new LinkedHashMap<Currency, BigDecimal>();
+		}
+		
+		return totalPriceByCurrency;
+	}
+	public void setTotalPriceByCurrency(Map<Currency, BigDecimal> totalPriceByCurrency) {
+		this.totalPriceByCurrency = totalPriceByCurrency;
+	}
+	/**
+	 * @return true if the entries have more than one currency, so that the order has a total for every currency
+	 */
+	public boolean isMixedCurrencies() {
+		return getTotalPriceByCurrency().size() > 1;
+	}
+}
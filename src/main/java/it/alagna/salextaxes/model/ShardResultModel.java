@@ -0,0 +1,69 @@
+package it.alagna.salextaxes.model;
+
+/**
+ * 
+ * Result of the pricing of a shard of a batch: the byte range of the shard in the input,
+ * the worker that priced it and its throughput.
+ */
+public class ShardResultModel extends BatchResultModel {
+
+	private int index;
+	private long startOffset;
+	private long endOffset;
+	private int attempts;
+	private String worker;
+	private long nanos;
+	
+	/**
+	 * @return entries priced per second by the worker, excluding its startup
+	 */
+	public double getEntriesPerSecond()
+	{
+		return nanos > 0 ? getEntries() * 1e9 / nanos : 0;
+	}
+	
+	/**
+	 * @return orders priced per second by the worker, excluding its startup
+	 */
+	public double getOrdersPerSecond()
+	{
+		return nanos > 0 ? getOrders() * 1e9 / nanos : 0;
+	}
+	
+	public int getIndex() {
+		return index;
+	}
+	public void setIndex(int index) {
+		this.index = index;
+	}
+	public long getStartOffset() {
+		return startOffset;
+	}
+	public void setStartOffset(long startOffset) {
+		this.startOffset = startOffset;
+	}
+	public long getEndOffset() {
+		return endOffset;
+	}
+	public void setEndOffset(long endOffset) {
+		this.endOffset = endOffset;
+	}
+	public int getAttempts() {
+		return attempts;
+	}
+	public void setAttempts(int attempts) {
+		this.attempts = attempts;
+	}
+	public String getWorker() {
+		return worker;
+	}
+	public void setWorker(String worker) {
+		this.worker = worker;
+	}
+	public long getNanos() {
+		return nanos;
+	}
+	public void setNanos(long nanos) {
+		this.nanos = nanos;
+	}
+}
@@ -0,0 +1,26 @@
+package it.alagna.salextaxes.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 
+ * Result of a sharded batch: merged counters and totals, and the result of every shard in input order.
+ */
+public class ShardedBatchResultModel extends BatchResultModel {
+
+	List<ShardResultModel> shards;
+	
+	public List<ShardResultModel> getShards() {
+		if(shards == null)
+		{
+			shards = new ArrayList<ShardResultModel>();
+		}
+		
+		return shards;
+	}
+
+	public void setShards(List<ShardResultModel> shards) {
+		this.shards = shards;
+	}
+}
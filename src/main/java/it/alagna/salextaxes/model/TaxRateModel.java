@@ -0,0 +1,128 @@
+package it.alagna.salextaxes.model;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * 
+ * A version of the tax rates, effective from a given instant until the next version.
+ * Immutable, so that a version can be shared by all pricing threads while a new one is published.
+ * </br></br>
+ * The rates are also kept as integer fractions over a common power of ten, e.g. 10/100 and 5/100,
+ * for the integer arithmetic of currency amounts.
+ * </br></br>
+ * The rounding factor is the cash rounding of the version: taxes of entries without a currency, and of entries in a currency
+ * whose rule has no increment of its own (see {@link CurrencyRuleModel}), are rounded up to it.
+ */
+public class TaxRateModel {
+
+	private final Instant effectiveFrom;
+	private final BigDecimal basicTaxRate;
+	private final BigDecimal importTaxRate;
+	private final BigDecimal roundingFactor;
+	
+	private static final int MAX_RATES_SCALE = 9;
+	
+	private final long ratesDenominator;
+	private final long basicTaxRateNumerator;
+	private final long importTaxRateNumerator;
+	private final long roundingFactorUnscaled;
+	private final int roundingFactorScale;
+	
+	public TaxRateModel(Instant effectiveFrom, BigDecimal basicTaxRate, BigDecimal importTaxRate, BigDecimal roundingFactor)
+	{
+		if(effectiveFrom == null || basicTaxRate == null || importTaxRate == null || roundingFactor == null)
+		{
+			throw new IllegalArgumentException("all tax rate fields are required");
+		}
+		if(basicTaxRate.signum() < 0 || importTaxRate.signum() < 0 || roundingFactor.signum() <= 0)
+		{
+			throw new IllegalArgumentException("tax rates should not be negative and roundingFactor should be positive");
+		}
+		
+		this.effectiveFrom = effectiveFrom;
+		this.basicTaxRate = basicTaxRate;
+		this.importTaxRate = importTaxRate;
+		this.roundingFactor = roundingFactor;
+		
+		int scale = Math.max(0, Math.max(basicTaxRate.stripTrailingZeros().scale(), importTaxRate.stripTrailingZeros().scale()));
+		long denominator = 0, basicNumerator = 0, importNumerator = 0;
+		if(scale <= MAX_RATES_SCALE)
+		{
+			try
+			{
+				denominator = BigDecimal.ONE.movePointRight(scale).longValueExact();
+				basicNumerator = basicTaxRate.movePointRight(scale).longValueExact();
+				importNumerator = importTaxRate.movePointRight(scale).longValueExact();
+			}
+			catch (ArithmeticException e)
+			{
+				throw new IllegalArgumentException("tax rates " + basicTaxRate + " and " + importTaxRate + " are too large");
+			}
+		}
+		this.ratesDenominator = denominator;
+		this.basicTaxRateNumerator = basicNumerator;
+		this.importTaxRateNumerator = importNumerator;
+		
+		BigDecimal factor = roundingFactor.stripTrailingZeros();
+		this.roundingFactorUnscaled = factor.unscaledValue().bitLength() < Long.SIZE ? factor.unscaledValue().longValue() : 0;
+		this.roundingFactorScale = factor.scale();
+	}
+	
+	@Override
+	public String toString()
+	{
+		return "from " + effectiveFrom + ": basic " + basicTaxRate + ", import " + importTaxRate + ", rounding " + roundingFactor;
+	}
+
+	public Instant getEffectiveFrom() {
+		return effectiveFrom;
+	}
+	public BigDecimal getBasicTaxRate() {
+		return basicTaxRate;
+	}
+	public BigDecimal getImportTaxRate() {
+		return importTaxRate;
+	}
+	public BigDecimal getRoundingFactor() {
+		return roundingFactor;
+	}
+	/**
+	 * @return the common denominator of the rate numerators, or 0 if the rates have too many decimal places for integer arithmetic
+	 */
+	public long getRatesDenominator() {
+		return ratesDenominator;
+	}
+	public long getBasicTaxRateNumerator() {
+		return basicTaxRateNumerator;
+	}
+	public long getImportTaxRateNumerator() {
+		return importTaxRateNumerator;
+	}
+	/**
+	 * @param minorDigits - the minor digits of a currency
+	 * @return the rounding factor in minor units of the currency, 0 if the factor is finer than the minor unit,
+	 * or Long.MAX_VALUE if it is too large for integer arithmetic
+	 */
+	public long getRoundingFactorMinorUnits(int minorDigits)
+	{
+		if(roundingFactorScale > minorDigits)
+		{
+			return 0;
+		}
+		if(roundingFactorUnscaled == 0)
+		{
+			return Long.MAX_VALUE;
+		}
+		long minorUnits = roundingFactorUnscaled;
+		for(int scale = roundingFactorScale; scale < minorDigits; scale++)
+		{
+			if(minorUnits > Long.MAX_VALUE / 10)
+			{
+				return Long.MAX_VALUE;
+			}
+			minorUnits *= 10;
+		}
+		return minorUnits;
+	}
+}
@@ -0,0 +1,17 @@
+package it.alagna.salextaxes.service;
+
+import it.alagna.salextaxes.model.AsyncMetricsModel;
+import it.alagna.salextaxes.model.OrderModel;
+
+import java.io.Closeable;
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+
+public interface IAsyncOrderService extends Closeable {
+
+	CompletableFuture<BigDecimal> evaluateTotalTaxes(OrderModel order);
+	CompletableFuture<BigDecimal> evaluateTotalPrice(OrderModel order);
+	CompletableFuture<String> toOutputString(OrderModel order);
+	AsyncMetricsModel getMetrics();
+	void close();
+}
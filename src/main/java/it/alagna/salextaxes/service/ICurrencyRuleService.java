@@ -0,0 +1,11 @@
+package it.alagna.salextaxes.service;
+
+import it.alagna.salextaxes.model.CurrencyRuleModel;
+
+import java.util.Currency;
+
+public interface ICurrencyRuleService {
+
+	CurrencyRuleModel getRule(Currency currency);
+	void register(CurrencyRuleModel rule);
+}
@@ -3,17 +3,30 @@ package it.alagna.salextaxes.service;
 import it.alagna.salextaxes.exception.OrderEntryException;
 import it.alagna.salextaxes.model.OrderEntryModel;
 import it.alagna.salextaxes.model.OrderModel;
+import it.alagna.salextaxes.model.OrderResultModel;
+import it.alagna.salextaxes.model.TaxRateModel;
 
 import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.Map;
 
 public interface IOrderService {
 		
 	BigDecimal evaluateTotalTaxes(OrderModel order) throws OrderEntryException;
 	BigDecimal evaluateTotalPrice(OrderModel order) throws OrderEntryException;
+	BigDecimal evaluateTotalTaxes(OrderModel order, TaxRateModel rates) throws OrderEntryException;
+	BigDecimal evaluateTotalPrice(OrderModel order, TaxRateModel rates) throws OrderEntryException;
+	Map<Currency, BigDecimal> evaluateTotalTaxesByCurrency(OrderModel order) throws OrderEntryException;
+	Map<Currency, BigDecimal> evaluateTotalPriceByCurrency(OrderModel order) throws OrderEntryException;
+	OrderResultModel evaluate(OrderModel order, TaxRateModel rates) throws OrderEntryException;
+	TaxRateModel getTaxRates(OrderModel order) throws OrderEntryException;
 	BigDecimal evaluateTotalTaxes(OrderEntryModel entry) throws OrderEntryException;
+	BigDecimal evaluateTotalTaxes(OrderEntryModel entry, TaxRateModel rates) throws OrderEntryException;
 	BigDecimal evaluateNetPrice(OrderEntryModel entry) throws OrderEntryException;
 	BigDecimal evaluateTotalPrice(OrderEntryModel entry) throws OrderEntryException;
+	BigDecimal evaluateTotalPrice(OrderEntryModel entry, TaxRateModel rates) throws OrderEntryException;
 	BigDecimal roundTax(BigDecimal tax);
+	BigDecimal roundTax(BigDecimal tax, BigDecimal roundingFactor);
 	String toInputString(OrderModel order) throws OrderEntryException;
 	String toOutputString(OrderModel order) throws OrderEntryException;
 }
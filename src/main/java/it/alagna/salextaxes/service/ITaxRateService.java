@@ -0,0 +1,14 @@
+package it.alagna.salextaxes.service;
+
+import it.alagna.salextaxes.model.TaxRateModel;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface ITaxRateService {
+
+	TaxRateModel getRates(Instant instant);
+	TaxRateModel getCurrentRates();
+	List<TaxRateModel> getVersions();
+	void publish(TaxRateModel rates);
+}
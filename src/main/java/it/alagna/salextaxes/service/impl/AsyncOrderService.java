@@ -0,0 +1,421 @@
+package it.alagna.salextaxes.service.impl;
+
+import it.alagna.salextaxes.exception.OrderEntryException;
+import it.alagna.salextaxes.model.AsyncMetricsModel;
+import it.alagna.salextaxes.model.OrderModel;
+import it.alagna.salextaxes.service.IAsyncOrderService;
+import it.alagna.salextaxes.service.IOrderService;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 
+ * Implementation of {@link IAsyncOrderService} interface over an {@link IOrderService}.
+ * </br></br>
+ * Requests are queued and collected by a single dispatcher thread in micro-batches: a batch starts with the oldest
+ * queued request and takes the requests arriving within {@link #getMaxWaitNanos()} of it, up to {@link #getMaxBatchSize()}.
+ * The whole batch is then handed to the executor, which evaluates it in one pass and completes the future of every request
+ * in arrival order. Up to {@link #getMaxConcurrentBatches()} batches are evaluated at the same time, and the dispatcher
+ * stops collecting while that many are in flight, so that the queue keeps bounding the pending requests.
+ * </br></br>
+ * Futures are completed on the executor threads, never on the dispatcher, so a slow dependent stage delays only
+ * the rest of its own batch. Stages that may block should still be attached with the *Async methods of {@link CompletableFuture}.
+ * A dependent stage may close the facade: the batches in flight, its own included, then complete on their own.
+ * </br></br>
+ * The queue holds at most {@link #getQueueDepth()} requests: when it is full, or the facade is closed,
+ * new requests fail immediately with a {@link RejectedExecutionException}.
+ */
+public class AsyncOrderService implements IAsyncOrderService
+{
+	public static final int DEFAULT_QUEUE_DEPTH = 10000;
+	public static final int DEFAULT_MAX_BATCH_SIZE = 256;
+	public static final long DEFAULT_MAX_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+	public static final int DEFAULT_MAX_CONCURRENT_BATCHES = Runtime.getRuntime().availableProcessors();
+	
+	private final IOrderService orderService;
+	private final int queueDepth;
+	private final int maxBatchSize;
+	private final long maxWaitNanos;
+	private final int maxConcurrentBatches;
+	private final Executor executor;
+	private final ExecutorService ownExecutor;
+	private final Semaphore inFlight;
+	private final BlockingQueue<Request<?>> queue;
+	private final Thread dispatcher;
+	private final ThreadLocal<Boolean> completing = new ThreadLocal<Boolean>();
+	private volatile boolean closed;
+	
+	// written by the dispatcher thread only
+	private volatile long requests;
+	private volatile long batches;
+	private volatile int largestBatch;
+	private volatile long totalWaitNanos;
+	private volatile long maxRequestWaitNanos;
+	private final AtomicLong rejected = new AtomicLong();
+	
+	/**
+	 * @param orderService - the service evaluating the orders
+	 */
+	public AsyncOrderService(IOrderService orderService)
+	{
+		this(orderService, DEFAULT_QUEUE_DEPTH, DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_WAIT_NANOS);
+	}
+	
+	/**
+	 * Batches are evaluated by a pool of {@link #DEFAULT_MAX_CONCURRENT_BATCHES} threads owned by the facade and stopped on close.
+	 * 
+	 * @param orderService - the service evaluating the orders
+	 * @param queueDepth - the maximum number of requests waiting for evaluation
+	 * @param maxBatchSize - the maximum number of requests evaluated in one batch
+	 * @param maxWaitNanos - the time window, from the oldest request of a batch, in which new requests join the batch
+	 */
+	public AsyncOrderService(IOrderService orderService, int queueDepth, int maxBatchSize, long maxWaitNanos)
+	{
+		this(orderService, queueDepth, maxBatchSize, maxWaitNanos, null, DEFAULT_MAX_CONCURRENT_BATCHES);
+	}
+	
+	/**
+	 * @param orderService - the service evaluating the orders
+	 * @param queueDepth - the maximum number of requests waiting for evaluation
+	 * @param maxBatchSize - the maximum number of requests evaluated in one batch
+	 * @param maxWaitNanos - the time window, from the oldest request of a batch, in which new requests join the batch
+	 * @param executor - the executor evaluating the batches, not stopped on close, or null for a pool owned by the facade
+	 * @param maxConcurrentBatches - the maximum number of batches evaluated at the same time
+	 */
+	public AsyncOrderService(IOrderService orderService, int queueDepth, int maxBatchSize, long maxWaitNanos,
+			Executor executor, int maxConcurrentBatches)
+	{
+		if(queueDepth < 1 || maxBatchSize < 1 || maxWaitNanos < 0 || maxConcurrentBatches < 1)
+		{
+			throw new IllegalArgumentException("queueDepth, maxBatchSize and maxConcurrentBatches should be positive, maxWaitNanos not negative");
+		}
+		
+		this.orderService = orderService;
+		this.queueDepth = queueDepth;
+		this.maxBatchSize = maxBatchSize;
+		this.maxWaitNanos = maxWaitNanos;
+		this.maxConcurrentBatches = maxConcurrentBatches;
+		this.ownExecutor = executor == null ? Executors.newFixedThreadPool(maxConcurrentBatches, new ThreadFactory() {
+			private final AtomicInteger threads = new AtomicInteger();
+			
+			public Thread newThread(Runnable runnable)
+			{
+				Thread thread = new Thread(runnable, "async-order-service-batch-" + threads.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		}) : null;
+		this.executor = executor != null ? executor : ownExecutor;
+		this.inFlight = new Semaphore(maxConcurrentBatches);
+		this.queue = new ArrayBlockingQueue<Request<?>>(queueDepth);
+		
+		this.dispatcher = new Thread(new Runnable() {
+			public void run()
+			{
+				dispatch();
+			}
+		}, "async-order-service");
+		this.dispatcher.setDaemon(true);
+		this.dispatcher.start();
+	}
+	
+	/**
+	 * Evaluates the total amount of taxes in an order, see {@link IOrderService#evaluateTotalTaxes(OrderModel)}.
+	 * 
+	 * @param order - the order to evaluate taxes from
+	 * @return the total amount of taxes, failing with an {@link OrderEntryException} if one of the entries cannot be evaluated
+	 * 
+	 */
+	public CompletableFuture<BigDecimal> evaluateTotalTaxes(OrderModel order)
+	{
+		return submit(new Request<BigDecimal>(order) {
+			BigDecimal evaluate() throws OrderEntryException
+			{
+				return orderService.evaluateTotalTaxes(order);
+			}
+		});
+	}
+	
+	/**
+	 * Evaluates the total price of an order, see {@link IOrderService#evaluateTotalPrice(OrderModel)}.
+	 * 
+	 * @param order - the order to evaluate
+	 * @return the total price including taxes, failing with an {@link OrderEntryException} if one of the entries cannot be evaluated
+	 * 
+	 */
+	public CompletableFuture<BigDecimal> evaluateTotalPrice(OrderModel order)
+	{
+		return submit(new Request<BigDecimal>(order) {
+			BigDecimal evaluate() throws OrderEntryException
+			{
+				return orderService.evaluateTotalPrice(order);
+			}
+		});
+	}
+	
+	/**
+	 * Produces the receipt of an order, see {@link IOrderService#toOutputString(OrderModel)}.
+	 * 
+	 * @param order - the order to describe
+	 * @return a text description of the order, failing with an {@link OrderEntryException} if any entry cannot be evaluated
+	 * 
+	 */
+	public CompletableFuture<String> toOutputString(OrderModel order)
+	{
+		return submit(new Request<String>(order) {
+			String evaluate() throws OrderEntryException
+			{
+				return orderService.toOutputString(order);
+			}
+		});
+	}
+	
+	/**
+	 * @return a snapshot of the batching counters
+	 */
+	public AsyncMetricsModel getMetrics()
+	{
+		AsyncMetricsModel metrics = new AsyncMetricsModel();
+		metrics.setRequests(requests);
+		metrics.setRejected(rejected.get());
+		metrics.setBatches(batches);
+		metrics.setMaxBatchSize(largestBatch);
+		metrics.setTotalWaitNanos(totalWaitNanos);
+		metrics.setMaxWaitNanos(maxRequestWaitNanos);
+		metrics.setQueued(queue.size());
+		return metrics;
+	}
+	
+	/**
+	 * Rejects new requests, evaluates the ones already queued, waits for the batches in flight and stops the dispatcher.
+	 * </br></br>
+	 * Called from a dependent stage on a batch thread, it only rejects new requests and returns:
+	 * waiting there would wait for the batch of the caller, and for the dispatcher waiting for that batch.
+	 */
+	public void close()
+	{
+		closed = true;
+		dispatcher.interrupt();
+		if(completing.get() != null)
+		{
+			return;
+		}
+		
+		boolean interrupted = false;
+		while(dispatcher.isAlive())
+		{
+			try
+			{
+				dispatcher.join();
+			}
+			catch (InterruptedException e)
+			{
+				interrupted = true;
+			}
+		}
+		
+		inFlight.acquireUninterruptibly(maxConcurrentBatches);
+		inFlight.release(maxConcurrentBatches);
+		
+		if(interrupted)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	private <T> CompletableFuture<T> submit(Request<T> request)
+	{
+		if(closed || !queue.offer(request))
+		{
+			rejected.incrementAndGet();
+			request.future.completeExceptionally(new RejectedExecutionException(closed ? "closed" : "queue full, " + queueDepth + " requests waiting"));
+		}
+		else if(closed && queue.remove(request))
+		{
+			// closed while queuing: the dispatcher may have already drained the queue
+			rejected.incrementAndGet();
+			request.future.completeExceptionally(new RejectedExecutionException("closed"));
+		}
+		return request.future;
+	}
+	
+	private void dispatch()
+	{
+		List<Request<?>> batch = new ArrayList<Request<?>>(maxBatchSize);
+		
+		while(!closed || !queue.isEmpty())
+		{
+			// stop collecting while the executor is busy, so that new requests wait in the bounded queue
+			try
+			{
+				inFlight.acquire();
+			}
+			catch (InterruptedException e)
+			{
+				inFlight.acquireUninterruptibly();
+			}
+			
+			try
+			{
+				fill(batch);
+			}
+			catch (InterruptedException e)
+			{
+				// woken up by close: evaluate what was collected, then drain the queue without waiting
+			}
+			
+			if(!batch.isEmpty())
+			{
+				evaluate(batch);
+				batch = new ArrayList<Request<?>>(maxBatchSize);
+			}
+			else
+			{
+				inFlight.release();
+			}
+		}
+		
+		// every queued request has been handed over: the batches already submitted still run after the shutdown
+		if(ownExecutor != null)
+		{
+			ownExecutor.shutdown();
+		}
+	}
+	
+	/**
+	 * Collects the next batch: waits for a first request, then for the requests arriving within the window.
+	 */
+	private void fill(List<Request<?>> batch) throws InterruptedException
+	{
+		Request<?> first = closed ? queue.poll() : queue.take();
+		if(first == null)
+		{
+			return;
+		}
+		batch.add(first);
+		
+		long deadline = first.queuedNanos + maxWaitNanos;
+		while(batch.size() < maxBatchSize)
+		{
+			if(queue.drainTo(batch, maxBatchSize - batch.size()) > 0)
+			{
+				continue;
+			}
+			
+			long remaining = deadline - System.nanoTime();
+			Request<?> next = remaining > 0 && !closed ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+			if(next == null)
+			{
+				return;
+			}
+			batch.add(next);
+		}
+	}
+	
+	private void evaluate(final List<Request<?>> batch)
+	{
+		// counters are updated before completing the futures, so that callers see the batch of their own request
+		long start = System.nanoTime();
+		long waitNanos = totalWaitNanos;
+		long maxWait = maxRequestWaitNanos;
+		for(Request<?> request : batch)
+		{
+			long wait = start - request.queuedNanos;
+			waitNanos += wait;
+			maxWait = Math.max(maxWait, wait);
+		}
+		
+		totalWaitNanos = waitNanos;
+		maxRequestWaitNanos = maxWait;
+		largestBatch = Math.max(largestBatch, batch.size());
+		requests += batch.size();
+		batches++;
+		
+		try
+		{
+			executor.execute(new Runnable() {
+				public void run()
+				{
+					completing.set(Boolean.TRUE);
+					try
+					{
+						for(Request<?> request : batch)
+						{
+							request.complete();
+						}
+					}
+					finally
+					{
+						completing.remove();
+						inFlight.release();
+					}
+				}
+			});
+		}
+		catch (RejectedExecutionException e)
+		{
+			inFlight.release();
+			for(Request<?> request : batch)
+			{
+				request.future.completeExceptionally(e);
+			}
+		}
+	}
+	
+	public int getQueueDepth() {
+		return queueDepth;
+	}
+	public int getMaxBatchSize() {
+		return maxBatchSize;
+	}
+	public long getMaxWaitNanos() {
+		return maxWaitNanos;
+	}
+	public int getMaxConcurrentBatches() {
+		return maxConcurrentBatches;
+	}
+	
+	/**
+	 * A queued evaluation and the future of its result.
+	 */
+	private abstract static class Request<T>
+	{
+		protected final OrderModel order;
+		private final CompletableFuture<T> future = new CompletableFuture<T>();
+		private final long queuedNanos = System.nanoTime();
+		
+		Request(OrderModel order)
+		{
+			this.order = order;
+		}
+		
+		abstract T evaluate() throws OrderEntryException;
+		
+		void complete()
+		{
+			try
+			{
+				future.complete(evaluate());
+			}
+			catch (Throwable e)
+			{
+				// errors too, so that no caller waits forever on a request that was evaluated
+				future.completeExceptionally(e);
+			}
+		}
+	}
+}
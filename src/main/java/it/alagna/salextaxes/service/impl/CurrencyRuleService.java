@@ -0,0 +1,74 @@
+package it.alagna.salextaxes.service.impl;
+
+import it.alagna.salextaxes.model.CurrencyRuleModel;
+import it.alagna.salextaxes.service.ICurrencyRuleService;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * 
+ * Implementation of {@link ICurrencyRuleService} interface.
+ * The rule of a currency without a registered one is computed once, at its first lookup:
+ * the minor digits are the default fraction digits of the currency, and taxes are rounded up to
+ * the rounding factor of the tax rates in effect in currencies with 2 minor digits, as for entries without a currency,
+ * and to the minor unit in the others. A registered rule with its own increment takes precedence over the tax rates.
+ * </br></br>
+ * Lookups read an immutable table without locking; adding a rule replaces the table atomically.
+ */
+public class CurrencyRuleService implements ICurrencyRuleService
+{
+	private volatile Map<Currency, CurrencyRuleModel> rules = new IdentityHashMap<Currency, CurrencyRuleModel>();
+	
+	/**
+	 * @param currency - the currency of the amounts
+	 * @return the rule of the currency
+	 * 
+	 */
+	public CurrencyRuleModel getRule(Currency currency)
+	{
+		CurrencyRuleModel rule = rules.get(currency);
+		if(rule == null)
+		{
+			rule = addDefaultRule(currency);
+		}
+		return rule;
+	}
+	
+	/**
+	 * Replaces the rule of a currency.
+	 * 
+	 * @param rule - the new rule
+	 * 
+	 */
+	public synchronized void register(CurrencyRuleModel rule)
+	{
+		Map<Currency, CurrencyRuleModel> updated = new IdentityHashMap<Currency, CurrencyRuleModel>(rules);
+		updated.put(rule.getCurrency(), rule);
+		rules = updated;
+	}
+	
+	private synchronized CurrencyRuleModel addDefaultRule(Currency currency)
+	{
+		CurrencyRuleModel rule = rules.get(currency);
+		if(rule == null)
+		{
+			rule = defaultRule(currency);
+			register(rule);
+		}
+		return rule;
+	}
+	
+	private static CurrencyRuleModel defaultRule(Currency currency)
+	{
+		// pseudo-currencies such as XAU have no minor unit
+		int minorDigits = Math.min(Math.max(currency.getDefaultFractionDigits(), 0), CurrencyRuleModel.MAX_MINOR_DIGITS);
+		if(minorDigits == 2)
+		{
+			return new CurrencyRuleModel(currency, minorDigits);
+		}
+		return new CurrencyRuleModel(currency, minorDigits, BigDecimal.ONE.movePointLeft(minorDigits));
+	}
+}
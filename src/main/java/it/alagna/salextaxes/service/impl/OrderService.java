@@ -1,12 +1,24 @@
 package it.alagna.salextaxes.service.impl;
 
 import it.alagna.salextaxes.exception.OrderEntryException;
+import it.alagna.salextaxes.model.CurrencyRuleModel;
 import it.alagna.salextaxes.model.OrderEntryModel;
 import it.alagna.salextaxes.model.OrderModel;
+import it.alagna.salextaxes.model.OrderResultModel;
+import it.alagna.salextaxes.model.TaxRateModel;
+import it.alagna.salextaxes.service.ICurrencyRuleService;
 import it.alagna.salextaxes.service.IOrderService;
+import it.alagna.salextaxes.service.ITaxRateService;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.stream.IntStream;
 
 /**
  * 
@@ -21,49 +33,285 @@ public class OrderService implements IOrderService
 	public static final String TOTAL_DESCRIPTION_FORMAT = "Total: %s";
 	
 	public static final BigDecimal ROUNDING_FACTOR = BigDecimal.valueOf(0.05);
-
+	
+	public static final int DEFAULT_PARALLEL_THRESHOLD = 20000;
+	public static final int MIN_RANGE_SIZE = 4096;
+	
+	private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+	private ITaxRateService taxRateService = new TaxRateService();
+	private ICurrencyRuleService currencyRuleService = new CurrencyRuleService();
+	
 	/**
-	 * Evaluates the total amount of taxes in an order.
+	 * Evaluates the total amount of taxes in an order, at the rates of the order, see {@link #getTaxRates(OrderModel)}.
+	 * Orders with more entries than {@link #getParallelThreshold()} are summed in parallel.
 	 * 
 	 * @param order - the order to evaluate taxes from
 	 * @return the total amount of taxes
-	 * @throws OrderEntryException if one of the entries cannot be evaluated
+	 * @throws OrderEntryException if one of the entries cannot be evaluated, or no rates are effective at the order timestamp
 	 * 
 	 */
 	public BigDecimal evaluateTotalTaxes(OrderModel order) throws OrderEntryException
 	{
-		BigDecimal totalTaxes = BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP);
+		return evaluateTotalTaxes(order, getTaxRates(order));
+	}
+	
+	/**
+	 * Evaluates the total price of an order, at the rates of the order, see {@link #getTaxRates(OrderModel)}.
+	 * Orders with more entries than {@link #getParallelThreshold()} are summed in parallel.
+	 * 
+	 * @param order - the order to evaluate taxes from
+	 * @return the total amount of taxes
+	 * @throws OrderEntryException if one of the entries cannot be evaluated, or no rates are effective at the order timestamp
+	 * 
+	 */
+	public BigDecimal evaluateTotalPrice(OrderModel order) throws OrderEntryException
+	{
+		return evaluateTotalPrice(order, getTaxRates(order));
+	}
+	
+	/**
+	 * Evaluates the total amount of taxes in an order at the given rates.
+	 * 
+	 * @param order - the order to evaluate taxes from
+	 * @param rates - the tax rates to apply
+	 * @return the total amount of taxes
+	 * @throws OrderEntryException if one of the entries cannot be evaluated
+	 * 
+	 */
+	public BigDecimal evaluateTotalTaxes(OrderModel order, final TaxRateModel rates) throws OrderEntryException
+	{
+		return sumEntries(order.getEntries(), new EntryEvaluator() {
+			public BigDecimal evaluate(OrderEntryModel entry) throws OrderEntryException
+			{
+				return evaluateTotalTaxes(entry, rates);
+			}
+		});
+	}
+	
+	/**
+	 * Evaluates the total price of an order at the given rates.
+	 * 
+	 * @param order - the order to evaluate
+	 * @param rates - the tax rates to apply
+	 * @return the total price including taxes
+	 * @throws OrderEntryException if one of the entries cannot be evaluated
+	 * 
+	 */
+	public BigDecimal evaluateTotalPrice(OrderModel order, final TaxRateModel rates) throws OrderEntryException
+	{
+		return sumEntries(order.getEntries(), new EntryEvaluator() {
+			public BigDecimal evaluate(OrderEntryModel entry) throws OrderEntryException
+			{
+				return evaluateTotalPrice(entry, rates);
+			}
+		});
+	}
+	
+	/**
+	 * Evaluates the total price of every entry and the totals of an order in a single pass, at the given rates.
+	 * The totals are also evaluated for every currency of the entries, so that orders with mixed currencies can be described.
+	 * Nothing is returned unless every entry can be evaluated.
+	 * 
+	 * @param order - the order to evaluate
+	 * @param rates - the tax rates to apply
+	 * @return the prices of the entries and the totals of the order
+	 * @throws OrderEntryException if one of the entries cannot be evaluated
+	 * 
+	 */
+	public OrderResultModel evaluate(OrderModel order, TaxRateModel rates) throws OrderEntryException
+	{
+		List<OrderEntryModel> entries = order.getEntries();
+		Map<Currency, BigDecimal> totalTaxes = new LinkedHashMap<Currency, BigDecimal>(4);
+		Map<Currency, BigDecimal> totalPrice = new LinkedHashMap<Currency, BigDecimal>(4);
+		List<BigDecimal> entryPrices = new ArrayList<BigDecimal>(entries.size());
 		
-		for(OrderEntryModel entry : order.getEntries())
+		for(OrderEntryModel entry : entries)
 		{
-			totalTaxes = totalTaxes.add(evaluateTotalTaxes(entry));
+			BigDecimal taxes = evaluateTotalTaxes(entry, rates);
+			BigDecimal price = evaluateNetPrice(entry).add(taxes);
+			entryPrices.add(price);
+			addByCurrency(totalTaxes, entry.getCurrency(), taxes);
+			addByCurrency(totalPrice, entry.getCurrency(), price);
 		}
 		
-		return totalTaxes;
+		OrderResultModel result = new OrderResultModel();
+		result.setRates(rates);
+		result.setEntryPrices(entryPrices);
+		result.setTotalTaxesByCurrency(totalTaxes);
+		result.setTotalPriceByCurrency(totalPrice);
+		if(entries.isEmpty())
+		{
+			result.setTotalTaxes(zero(null));
+			result.setTotalPrice(zero(null));
+		}
+		else if(!result.isMixedCurrencies())
+		{
+			result.setTotalTaxes(totalTaxes.values().iterator().next());
+			result.setTotalPrice(totalPrice.values().iterator().next());
+		}
+		return result;
+	}
+	
+	/**
+	 * Finds the tax rates of an order: the ones effective at its timestamp, or the current ones if it has none.
+	 * Resolving the rates once per order keeps all its entries and totals on the same version,
+	 * even if a new version is published meanwhile.
+	 * 
+	 * @param order - the order to evaluate
+	 * @return the tax rates of the order
+	 * @throws OrderEntryException if no rates are effective at the order timestamp
+	 * 
+	 */
+	public TaxRateModel getTaxRates(OrderModel order) throws OrderEntryException
+	{
+		TaxRateModel rates = order.getTimestamp() != null ? taxRateService.getRates(order.getTimestamp()) : taxRateService.getCurrentRates();
+		if(rates == null)
+		{
+			throw new OrderEntryException("no tax rates effective at " + (order.getTimestamp() != null ? order.getTimestamp() : "the current time"));
+		}
+		return rates;
+	}
+	
+	/**
+	 * Sums the evaluation of every entry, serially or in parallel depending on the number of entries.
+	 * </br></br>
+	 * The parallel path splits the entries into contiguous ranges, sums each range exactly
+	 * and adds the subtotals in range order, so the result is identical to the serial sum.
+	 * If several entries cannot be evaluated, the exception of the first one is thrown, as in the serial path.
+	 * </br></br>
+	 * All the entries should have the currency of the first one, see {@link #evaluateTotalTaxesByCurrency(OrderModel)} for mixed orders.
+	 * 
+	 * @param entries - the entries to evaluate
+	 * @param evaluator - the evaluation to apply to every entry
+	 * @return the sum of all evaluations
+	 * @throws OrderEntryException if one of the entries cannot be evaluated, or the entries have different currencies
+	 * 
+	 */
+	protected BigDecimal sumEntries(List<OrderEntryModel> entries, EntryEvaluator evaluator) throws OrderEntryException
+	{
+		final Currency currency = entries.isEmpty() ? null : entries.get(0).getCurrency();
+		if(entries.size() <= parallelThreshold)
+		{
+			return sumRange(entries, 0, entries.size(), currency, evaluator);
+		}
+		
+		final List<OrderEntryModel> indexed = entries instanceof RandomAccess ? entries : new ArrayList<OrderEntryModel>(entries);
+		final int size = indexed.size();
+		final int ranges = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors() * 4, size / MIN_RANGE_SIZE));
+		final BigDecimal[] subtotals = new BigDecimal[ranges];
+		final OrderEntryException[] failures = new OrderEntryException[ranges];
+		
+		IntStream.range(0, ranges).parallel().forEach(range -> {
+			int from = (int) ((long) size * range / ranges);
+			int to = (int) ((long) size * (range + 1) / ranges);
+			try
+			{
+				subtotals[range] = sumRange(indexed, from, to, currency, evaluator);
+			}
+			catch (OrderEntryException e)
+			{
+				failures[range] = e;
+			}
+		});
+		
+		BigDecimal total = zero(currency);
+		for(int range = 0; range < ranges; range++)
+		{
+			if(failures[range] != null)
+			{
+				throw failures[range];
+			}
+			total = total.add(subtotals[range]);
+		}
+		
+		return total;
+	}
+	
+	private BigDecimal sumRange(List<OrderEntryModel> entries, int from, int to, Currency currency, EntryEvaluator evaluator) throws OrderEntryException
+	{
+		BigDecimal total = zero(currency);
+		
+		for(OrderEntryModel entry : entries.subList(from, to))
+		{
+			assertSameCurrency(currency, entry);
+			total = total.add(evaluator.evaluate(entry));
+		}
+		
+		return total;
+	}
+	
+	private void assertSameCurrency(Currency currency, OrderEntryModel entry) throws OrderEntryException
+	{
+		if(entry.getCurrency() != currency)
+		{
+			throw new OrderEntryException("entries in different currencies: " + currency + " and " + entry.getCurrency());
+		}
 	}
 	
 	/**
-	 * Evaluates the total price of an order.
+	 * Evaluates the total amount of taxes in an order for every currency of its entries,
+	 * at the rates of the order, see {@link #getTaxRates(OrderModel)}.
 	 * 
 	 * @param order - the order to evaluate taxes from
-	 * @return the total amount of taxes
+	 * @return the total amount of taxes by currency, in order of first appearance; entries without currency are under the null key
 	 * @throws OrderEntryException if one of the entries cannot be evaluated
 	 * 
 	 */
-	public BigDecimal evaluateTotalPrice(OrderModel order) throws OrderEntryException
+	public Map<Currency, BigDecimal> evaluateTotalTaxesByCurrency(OrderModel order) throws OrderEntryException
 	{
-		BigDecimal totalPrice = BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP);
+		TaxRateModel rates = getTaxRates(order);
+		Map<Currency, BigDecimal> totals = new LinkedHashMap<Currency, BigDecimal>();
 		
 		for(OrderEntryModel entry : order.getEntries())
 		{
-			totalPrice = totalPrice.add(evaluateTotalPrice(entry));
+			addByCurrency(totals, entry.getCurrency(), evaluateTotalTaxes(entry, rates));
 		}
 		
-		return totalPrice;
+		return totals;
 	}
 	
 	/**
-	 * Evaluates the total amount of taxes in a single entry.
+	 * Evaluates the total price of an order for every currency of its entries,
+	 * at the rates of the order, see {@link #getTaxRates(OrderModel)}.
+	 * 
+	 * @param order - the order to evaluate
+	 * @return the total price including taxes by currency, in order of first appearance; entries without currency are under the null key
+	 * @throws OrderEntryException if one of the entries cannot be evaluated
+	 * 
+	 */
+	public Map<Currency, BigDecimal> evaluateTotalPriceByCurrency(OrderModel order) throws OrderEntryException
+	{
+		TaxRateModel rates = getTaxRates(order);
+		Map<Currency, BigDecimal> totals = new LinkedHashMap<Currency, BigDecimal>();
+		
+		for(OrderEntryModel entry : order.getEntries())
+		{
+			addByCurrency(totals, entry.getCurrency(), evaluateTotalPrice(entry, rates));
+		}
+		
+		return totals;
+	}
+	
+	private void addByCurrency(Map<Currency, BigDecimal> totals, Currency currency, BigDecimal amount)
+	{
+		BigDecimal total = totals.get(currency);
+		totals.put(currency, (total != null ? total : zero(currency)).add(amount));
+	}
+	
+	/**
+	 * @return zero with the scale of the amounts in the currency, 2 decimal places without currency
+	 */
+	private BigDecimal zero(Currency currency)
+	{
+		if(currency == null)
+		{
+			return BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP);
+		}
+		return BigDecimal.valueOf(0, currencyRuleService.getRule(currency).getMinorDigits());
+	}
+	
+	/**
+	 * Evaluates the total amount of taxes in a single entry, at the current rates.
 	 * 
 	 * @param entry - the entry to evaluate taxes from
 	 * @return the total amount of taxes
@@ -71,40 +319,153 @@ public class OrderService implements IOrderService
 	 * 
 	 */
 	public BigDecimal evaluateTotalTaxes(OrderEntryModel entry) throws OrderEntryException
+	{
+		return evaluateTotalTaxes(entry, getCurrentTaxRates());
+	}
+	
+	/**
+	 * Evaluates the total amount of taxes in a single entry, at the given rates.
+	 * Entries with a currency are rounded by the rule of their currency, see {@link #evaluateCurrencyTaxes(OrderEntryModel, TaxRateModel)}.
+	 * 
+	 * @param entry - the entry to evaluate taxes from
+	 * @param rates - the tax rates to apply
+	 * @return the total amount of taxes
+	 * @throws OrderEntryException if the entry cannot be evaluated
+	 * 
+	 */
+	public BigDecimal evaluateTotalTaxes(OrderEntryModel entry, TaxRateModel rates) throws OrderEntryException
 	{
 		assertEvaluable(entry);
 		
-		BigDecimal totalTaxes = BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP);
+		BigDecimal totalTaxes;
+		if(entry.getCurrency() != null)
+		{
+			totalTaxes = evaluateCurrencyTaxes(entry, rates);
+		}
+		else
+		{
+			totalTaxes = BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP);
+			if(!entry.isTaxExempt())
+			{
+				BigDecimal amount = evaluateNetPrice(entry).multiply(rates.getBasicTaxRate());
+				totalTaxes = totalTaxes.add(roundTax(amount, rates.getRoundingFactor()));
+			}
+			if(entry.isImported())
+			{
+				BigDecimal amount = evaluateNetPrice(entry).multiply(rates.getImportTaxRate());
+				totalTaxes = totalTaxes.add(roundTax(amount, rates.getRoundingFactor()));
+			}
+		}
+		
+		return totalTaxes;
+	}
+	
+	/**
+	 * Evaluates the taxes of an entry with a currency, rounding every tax up to the increment of the currency.
+	 * A currency rule without an increment rounds to the rounding factor of the rates, or to the minor unit if the factor is finer.
+	 * </br></br>
+	 * Amounts are evaluated in minor units with integer arithmetic: with the rate as n/d and the increment as i minor units,
+	 * a tax on a net price of p minor units is ceil(p * n / (d * i)) * i minor units, which is exact.
+	 * Amounts too large for a long, and rates without an integer fraction, are evaluated with BigDecimal to the same result.
+	 * 
+	 * @param entry - the entry to evaluate taxes from
+	 * @param rates - the tax rates to apply
+	 * @return the total amount of taxes, with the minor digits of the currency
+	 * @throws OrderEntryException if the entry cannot be evaluated, or its price has more decimal places than its currency
+	 * 
+	 */
+	protected BigDecimal evaluateCurrencyTaxes(OrderEntryModel entry, TaxRateModel rates) throws OrderEntryException
+	{
+		CurrencyRuleModel rule = currencyRuleService.getRule(entry.getCurrency());
+		BigDecimal netPrice = evaluateNetPrice(entry);
+		long incrementMinorUnits = rule.getRoundingIncrementMinorUnits();
+		if(rule.getRoundingIncrement() == null)
+		{
+			incrementMinorUnits = Math.max(1, rates.getRoundingFactorMinorUnits(rule.getMinorDigits()));
+		}
+		
+		if(rates.getRatesDenominator() > 0 && incrementMinorUnits < Long.MAX_VALUE)
+		{
+			try
+			{
+				long minorUnits = netPrice.unscaledValue().longValueExact();
+				long divisor = Math.multiplyExact(rates.getRatesDenominator(), incrementMinorUnits);
+				long totalTaxes = 0;
+				if(!entry.isTaxExempt())
+				{
+					totalTaxes += roundUp(Math.multiplyExact(minorUnits, rates.getBasicTaxRateNumerator()), divisor);
+				}
+				if(entry.isImported())
+				{
+					totalTaxes += roundUp(Math.multiplyExact(minorUnits, rates.getImportTaxRateNumerator()), divisor);
+				}
+				return BigDecimal.valueOf(Math.multiplyExact(totalTaxes, incrementMinorUnits), rule.getMinorDigits());
+			}
+			catch (ArithmeticException e)
+			{
+				// overflow of the integer arithmetic
+			}
+		}
+		
+		BigDecimal increment = rule.getRoundingIncrement();
+		if(increment == null)
+		{
+			increment = incrementMinorUnits == 1 ? BigDecimal.ONE.movePointLeft(rule.getMinorDigits()) : rates.getRoundingFactor();
+		}
+		BigDecimal totalTaxes = BigDecimal.valueOf(0, rule.getMinorDigits());
 		if(!entry.isTaxExempt())
 		{
-			BigDecimal amount = evaluateNetPrice(entry).multiply(OrderEntryModel.BASIC_TAX_RATE);
-			totalTaxes = totalTaxes.add(roundTax(amount));
+			BigDecimal amount = netPrice.multiply(rates.getBasicTaxRate());
+			totalTaxes = totalTaxes.add(amount.divide(increment, 0, RoundingMode.CEILING).multiply(increment));
 		}
 		if(entry.isImported())
 		{
-			BigDecimal amount = evaluateNetPrice(entry).multiply(OrderEntryModel.IMPORT_TAX_RATE);
-			totalTaxes = totalTaxes.add(roundTax(amount));
+			BigDecimal amount = netPrice.multiply(rates.getImportTaxRate());
+			totalTaxes = totalTaxes.add(amount.divide(increment, 0, RoundingMode.CEILING).multiply(increment));
 		}
-		
 		return totalTaxes;
 	}
 	
+	/**
+	 * @return the number of increments of the tax, dividend / divisor rounded up, for a non negative dividend
+	 */
+	private static long roundUp(long dividend, long divisor)
+	{
+		return dividend / divisor + (dividend % divisor != 0 ? 1 : 0);
+	}
+	
 	/**
 	 * Evaluates the net price of a single entry, without taxes.
+	 * The net price of an entry with a currency has the minor digits of the currency, e.g. 100 for a price of 100.00 JPY.
 	 * 
 	 * @param entry - the entry to evaluate
 	 * @return the net price
-	 * @throws OrderEntryException if the entry cannot be evaluated
+	 * @throws OrderEntryException if the entry cannot be evaluated, or its price has more decimal places than its currency
 	 * 
 	 */
 	public BigDecimal evaluateNetPrice(OrderEntryModel entry) throws OrderEntryException
 	{
 		assertEvaluable(entry);
-		return entry.getPricePerUnit().multiply(BigDecimal.valueOf(entry.getQuantity()));
+		if(entry.getCurrency() == null)
+		{
+			return entry.getNetPrice();
+		}
+		
+		int minorDigits = currencyRuleService.getRule(entry.getCurrency()).getMinorDigits();
+		BigDecimal netPrice = entry.getNetPrice();
+		if(netPrice.scale() == minorDigits)
+		{
+			return netPrice;
+		}
+		if(netPrice.scale() > minorDigits && entry.getPricePerUnit().stripTrailingZeros().scale() > minorDigits)
+		{
+			throw new OrderEntryException("pricePerUnit " + entry.getPricePerUnit() + " has more decimal places than " + entry.getCurrency());
+		}
+		return netPrice.setScale(minorDigits, RoundingMode.UNNECESSARY);
 	}
 	
 	/**
-	 * Evaluates the gross price of a single entry, including taxes.
+	 * Evaluates the gross price of a single entry, including taxes at the current rates.
 	 * 
 	 * @param entry - the entry to evaluate
 	 * @return the total price including taxes
@@ -112,9 +473,34 @@ public class OrderService implements IOrderService
 	 * 
 	 */
 	public BigDecimal evaluateTotalPrice(OrderEntryModel entry) throws OrderEntryException
+	{
+		return evaluateTotalPrice(entry, getCurrentTaxRates());
+	}
+	
+	/**
+	 * Evaluates the gross price of a single entry, including taxes at the given rates.
+	 * 
+	 * @param entry - the entry to evaluate
+	 * @param rates - the tax rates to apply
+	 * @return the total price including taxes
+	 * @throws OrderEntryException if the entry cannot be evaluated
+	 * 
+	 */
+	public BigDecimal evaluateTotalPrice(OrderEntryModel entry, TaxRateModel rates) throws OrderEntryException
 	{
 		assertEvaluable(entry);
-		return evaluateNetPrice(entry).add(evaluateTotalTaxes(entry));
+		
+		return evaluateNetPrice(entry).add(evaluateTotalTaxes(entry, rates));
+	}
+	
+	private TaxRateModel getCurrentTaxRates() throws OrderEntryException
+	{
+		TaxRateModel rates = taxRateService.getCurrentRates();
+		if(rates == null)
+		{
+			throw new OrderEntryException("no tax rates effective at the current time");
+		}
+		return rates;
 	}
 	
 	/**
@@ -166,7 +552,22 @@ public class OrderService implements IOrderService
 	 */
 	public BigDecimal roundTax(BigDecimal tax)
 	{
-		return tax.divide(ROUNDING_FACTOR).setScale(0, RoundingMode.CEILING).multiply(ROUNDING_FACTOR).setScale(2, RoundingMode.HALF_UP);
+		return roundTax(tax, ROUNDING_FACTOR);
+	}
+	
+	/**
+	 * Rounds tax amount up to the nearest multiple of the given rounding factor, as {@link #roundTax(BigDecimal)}.
+	 * The result has 2 decimal places, or the decimal places of the factor if it is finer, e.g. 0.124 for 0.001.
+	 * 
+	 * @param tax - the tax amount to round
+	 * @param roundingFactor - the rounding increment
+	 * @return the rounded tax amount
+	 * 
+	 */
+	public BigDecimal roundTax(BigDecimal tax, BigDecimal roundingFactor)
+	{
+		int scale = Math.max(2, roundingFactor.scale());
+		return tax.divide(roundingFactor, 0, RoundingMode.CEILING).multiply(roundingFactor).setScale(scale, RoundingMode.UNNECESSARY);
 	}
 	
 	/**
@@ -192,6 +593,9 @@ public class OrderService implements IOrderService
 	/**
 	 * Produces a text description of an order, including tax calculation for each entry,
 	 * total tax amount and total order amount.
+	 * </br></br>
+	 * When the entries have different currencies, every amount is followed by its currency code,
+	 * and the order has a tax line and a total line for every currency.
 	 * 
 	 * @param order - the order to describe
 	 * @return a text description of the order
@@ -201,15 +605,83 @@ public class OrderService implements IOrderService
 	public String toOutputString(OrderModel order) throws OrderEntryException
 	{
 		StringBuilder builder = new StringBuilder();
+		OrderResultModel result = evaluate(order, getTaxRates(order));
 		
-		for(OrderEntryModel entry : order.getEntries())
+		List<OrderEntryModel> entries = order.getEntries();
+		for(int i = 0; i < entries.size(); i++)
 		{
-			builder.append(entry.getTotalPriceDescription(evaluateTotalPrice(entry))).append("\n");
+			OrderEntryModel entry = entries.get(i);
+			builder.append(entry.getTotalPriceDescription(result.getEntryPrices().get(i)));
+			if(result.isMixedCurrencies() && entry.getCurrency() != null)
+			{
+				builder.append(' ').append(entry.getCurrency().getCurrencyCode());
+			}
+			builder.append("\n");
 		}
 		
-		builder.append(String.format(SALESTAXES_DESCRIPTION_FORMAT, evaluateTotalTaxes(order))).append("\n");
-		builder.append(String.format(TOTAL_DESCRIPTION_FORMAT, evaluateTotalPrice(order)));
+		if(!result.isMixedCurrencies())
+		{
+			builder.append(String.format(SALESTAXES_DESCRIPTION_FORMAT, result.getTotalTaxes())).append("\n");
+			builder.append(String.format(TOTAL_DESCRIPTION_FORMAT, result.getTotalPrice()));
+		}
+		else
+		{
+			appendByCurrency(builder, SALESTAXES_DESCRIPTION_FORMAT, result.getTotalTaxesByCurrency());
+			appendByCurrency(builder, TOTAL_DESCRIPTION_FORMAT, result.getTotalPriceByCurrency());
+			builder.setLength(builder.length() - 1);
+		}
 
 		return builder.toString();
 	}
+	
+	/**
+	 * Appends a line for every currency, with the currency code after the amount.
+	 */
+	private void appendByCurrency(StringBuilder builder, String format, Map<Currency, BigDecimal> totals)
+	{
+		for(Map.Entry<Currency, BigDecimal> total : totals.entrySet())
+		{
+			builder.append(String.format(format, total.getValue()));
+			if(total.getKey() != null)
+			{
+				builder.append(' ').append(total.getKey().getCurrencyCode());
+			}
+			builder.append("\n");
+		}
+	}
+	
+	/**
+	 * @return the number of entries above which order totals are summed in parallel
+	 */
+	public int getParallelThreshold() {
+		return parallelThreshold;
+	}
+
+	public void setParallelThreshold(int parallelThreshold) {
+		this.parallelThreshold = parallelThreshold;
+	}
+
+	public ITaxRateService getTaxRateService() {
+		return taxRateService;
+	}
+
+	public void setTaxRateService(ITaxRateService taxRateService) {
+		this.taxRateService = taxRateService;
+	}
+
+	public ICurrencyRuleService getCurrencyRuleService() {
+		return currencyRuleService;
+	}
+
+	public void setCurrencyRuleService(ICurrencyRuleService currencyRuleService) {
+		this.currencyRuleService = currencyRuleService;
+	}
+
+	/**
+	 * A single entry evaluation, summed over all the entries of an order.
+	 */
+	protected interface EntryEvaluator
+	{
+		BigDecimal evaluate(OrderEntryModel entry) throws OrderEntryException;
+	}
 }
@@ -0,0 +1,168 @@
+package it.alagna.salextaxes.service.impl;
+
+import it.alagna.salextaxes.model.OrderEntryModel;
+import it.alagna.salextaxes.model.TaxRateModel;
+import it.alagna.salextaxes.service.ITaxRateService;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 
+ * Implementation of {@link ITaxRateService} interface.
+ * Keeps the versions of the tax rates sorted by effective date.
+ * </br></br>
+ * Lookups read an immutable snapshot of the versions without locking: the latest version is returned directly
+ * for instants after its effective date, older instants are found by binary search.
+ * Effective dates are compared with the full precision of {@link Instant}, so versions a fraction of a millisecond apart
+ * are kept apart, and any instant can be looked up.
+ * Publishing a version builds a new snapshot and replaces the previous one atomically,
+ * so pricing threads never wait and always see either the old or the new set of versions.
+ */
+public class TaxRateService implements ITaxRateService
+{
+	public static final TaxRateModel DEFAULT_RATES = new TaxRateModel(Instant.EPOCH,
+			OrderEntryModel.BASIC_TAX_RATE, OrderEntryModel.IMPORT_TAX_RATE, OrderService.ROUNDING_FACTOR);
+	
+	private volatile Versions versions;
+	
+	/**
+	 * Creates a service with the {@link #DEFAULT_RATES} only.
+	 */
+	public TaxRateService()
+	{
+		this(DEFAULT_RATES);
+	}
+	
+	/**
+	 * @param rates - the initial versions, in any order
+	 */
+	public TaxRateService(TaxRateModel... rates)
+	{
+		versions = new Versions(new TaxRateModel[0]);
+		for(TaxRateModel version : rates)
+		{
+			publish(version);
+		}
+	}
+	
+	/**
+	 * Finds the version effective at an instant.
+	 * 
+	 * @param instant - the instant to look up
+	 * @return the version with the latest effective date not after the instant, or null if there is none
+	 * 
+	 */
+	public TaxRateModel getRates(Instant instant)
+	{
+		return versions.lookup(instant);
+	}
+	
+	/**
+	 * @return the version effective now, or null if there is none
+	 */
+	public TaxRateModel getCurrentRates()
+	{
+		Versions current = versions;
+		if(System.currentTimeMillis() > current.latestEffectiveMillis)
+		{
+			// common case, without creating an Instant
+			return current.latest;
+		}
+		return current.lookup(Instant.now());
+	}
+	
+	/**
+	 * @return all the versions, sorted by effective date
+	 */
+	public List<TaxRateModel> getVersions()
+	{
+		return Collections.unmodifiableList(Arrays.asList(versions.rates));
+	}
+	
+	/**
+	 * Adds a version, replacing the one with the same effective date if any.
+	 * 
+	 * @param rates - the version to add
+	 * 
+	 */
+	public synchronized void publish(TaxRateModel rates)
+	{
+		TaxRateModel[] current = versions.rates;
+		int index = Arrays.binarySearch(versions.effectiveFrom, rates.getEffectiveFrom());
+		
+		TaxRateModel[] updated;
+		if(index >= 0)
+		{
+			updated = current.clone();
+			updated[index] = rates;
+		}
+		else
+		{
+			int insertion = -index - 1;
+			updated = new TaxRateModel[current.length + 1];
+			System.arraycopy(current, 0, updated, 0, insertion);
+			updated[insertion] = rates;
+			System.arraycopy(current, insertion, updated, insertion + 1, current.length - insertion);
+		}
+		
+		versions = new Versions(updated);
+	}
+	
+	/**
+	 * Immutable snapshot of the versions, sorted by effective date.
+	 */
+	private static class Versions
+	{
+		private final TaxRateModel[] rates;
+		private final Instant[] effectiveFrom;
+		private final TaxRateModel latest;
+		private final long latestEffectiveMillis;
+		
+		Versions(TaxRateModel[] rates)
+		{
+			this.rates = rates;
+			this.effectiveFrom = new Instant[rates.length];
+			for(int i = 0; i < rates.length; i++)
+			{
+				effectiveFrom[i] = rates[i].getEffectiveFrom();
+			}
+			this.latest = rates.length > 0 ? rates[rates.length - 1] : null;
+			this.latestEffectiveMillis = rates.length > 0 ? floorMillis(effectiveFrom[rates.length - 1]) : Long.MAX_VALUE;
+		}
+		
+		TaxRateModel lookup(Instant instant)
+		{
+			if(latest != null && instant.compareTo(latest.getEffectiveFrom()) >= 0)
+			{
+				return latest;
+			}
+			
+			int index = Arrays.binarySearch(effectiveFrom, instant);
+			if(index >= 0)
+			{
+				return rates[index];
+			}
+			
+			int previous = -index - 2;
+			return previous >= 0 ? rates[previous] : null;
+		}
+		
+		/**
+		 * @return the milliseconds of the instant rounded down, clamped to the range of a long
+		 */
+		private static long floorMillis(Instant instant)
+		{
+			try
+			{
+				return instant.toEpochMilli();
+			}
+			catch (ArithmeticException e)
+			{
+				return instant.isBefore(Instant.EPOCH) ? Long.MIN_VALUE : Long.MAX_VALUE;
+			}
+		}
+	}
+}
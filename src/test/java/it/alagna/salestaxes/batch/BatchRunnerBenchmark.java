@@ -0,0 +1,67 @@
+package it.alagna.salestaxes.batch;
+
+import it.alagna.salextaxes.batch.BatchRunner;
+import it.alagna.salextaxes.batch.JournaledBatchRunner;
+import it.alagna.salextaxes.exception.OrderEntryException;
+import it.alagna.salextaxes.generator.OrderGenerator;
+import it.alagna.salextaxes.generator.OrderGeneratorSettings;
+import it.alagna.salextaxes.io.OrderTextWriter;
+import it.alagna.salextaxes.service.impl.OrderService;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ *
+ * Compares the throughput of {@link BatchRunner} and {@link JournaledBatchRunner} with default commit settings.
+ * </br></br>
+ * Not a test suite: run it explicitly, e.g.</br>
+ * <code>mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=it.alagna.salestaxes.batch.BatchRunnerBenchmark -Dexec.args="2000000"</code>
+ */
+public class BatchRunnerBenchmark {
+
+	private static final int ROUNDS = 5;
+
+	public static void main(String[] args) throws IOException, OrderEntryException
+	{
+		long entries = args.length > 0 ? Long.parseLong(args[0]) : 2000000;
+		Path directory = Files.createTempDirectory("batch-benchmark");
+
+		try
+		{
+			Path input = directory.resolve("orders.txt");
+			OutputStream out = Files.newOutputStream(input);
+			new OrderGenerator(new OrderGeneratorSettings()).write(new OrderTextWriter(out), entries);
+			out.close();
+
+			long plain = Long.MAX_VALUE, journaled = Long.MAX_VALUE;
+			for(int round = 0; round < ROUNDS; round++)
+			{
+				long start = System.nanoTime();
+				new BatchRunner(new OrderService()).run(input, directory.resolve("plain.txt"));
+				plain = Math.min(plain, System.nanoTime() - start);
+
+				Path journal = directory.resolve("journal-" + round);
+				start = System.nanoTime();
+				new JournaledBatchRunner(new OrderService(), journal).run(input, directory.resolve("journaled-" + round + ".txt"));
+				journaled = Math.min(journaled, System.nanoTime() - start);
+			}
+
+			System.out.println(String.format("entries: %d, best of %d rounds", entries, ROUNDS));
+			System.out.println(String.format("unjournaled: %8.1f ms, %12.0f entries/s", plain / 1e6, entries / (plain / 1e9)));
+			System.out.println(String.format("journaled:   %8.1f ms, %12.0f entries/s", journaled / 1e6, entries / (journaled / 1e9)));
+			System.out.println(String.format("overhead:    %8.2f %%", 100.0 * (journaled - plain) / plain));
+		}
+		finally
+		{
+			try(Stream<Path> files = Files.walk(directory))
+			{
+				files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+			}
+		}
+	}
+}
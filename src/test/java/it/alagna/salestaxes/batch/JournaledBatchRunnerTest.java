@@ -0,0 +1,229 @@
+package it.alagna.salestaxes.batch;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import it.alagna.salextaxes.batch.BatchJournal;
+import it.alagna.salextaxes.batch.BatchRunner;
+import it.alagna.salextaxes.batch.JournaledBatchRunner;
+import it.alagna.salextaxes.batch.ShardPlanner;
+import it.alagna.salextaxes.exception.OrderEntryException;
+import it.alagna.salextaxes.generator.OrderGenerator;
+import it.alagna.salextaxes.generator.OrderGeneratorSettings;
+import it.alagna.salextaxes.io.OrderTextWriter;
+import it.alagna.salextaxes.model.BatchResultModel;
+import it.alagna.salextaxes.model.OrderModel;
+import it.alagna.salextaxes.model.OrderResultModel;
+import it.alagna.salextaxes.model.TaxRateModel;
+import it.alagna.salextaxes.service.impl.OrderService;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class JournaledBatchRunnerTest {
+
+	private static final int ENTRIES = 20000;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Path input, expectedOutput, output, journal;
+	private BatchResultModel expected;
+
+	@Before
+	public void setup() throws Exception
+	{
+		input = folder.newFile("orders.txt").toPath();
+		expectedOutput = folder.getRoot().toPath().resolve("expected.txt");
+		output = folder.getRoot().toPath().resolve("receipts.txt");
+		journal = folder.getRoot().toPath().resolve("journal");
+
+		OutputStream out = Files.newOutputStream(input);
+		new OrderGenerator(new OrderGeneratorSettings()).write(new OrderTextWriter(out), ENTRIES);
+		out.close();
+
+		expected = new BatchRunner(new OrderService()).run(input, expectedOutput);
+	}
+
+	@Test
+	public void testRun_SameAsUnjournaled() throws OrderEntryException, IOException
+	{
+		// WHEN
+		BatchResultModel result = newRunner(new OrderService()).run(input, output);
+
+		// THEN
+		assertSameResult(result);
+	}
+
+	@Test
+	public void testRun_ResumeAfterCrash() throws OrderEntryException, IOException
+	{
+		// GIVEN
+		crash(1234);
+		crash(2345);
+
+		// WHEN
+		BatchResultModel result = newRunner(new OrderService()).run(input, output);
+
+		// THEN
+		assertSameResult(result);
+	}
+
+	@Test
+	public void testRun_ResumeAfterTornJournalRecord() throws OrderEntryException, IOException
+	{
+		// GIVEN
+		crash(1500);
+		Files.write(journal.resolve(BatchJournal.JOURNAL_FILE), new byte[] { 1, 2, 3, 4, 5 }, StandardOpenOption.APPEND);
+
+		// WHEN
+		BatchResultModel result = newRunner(new OrderService()).run(input, output);
+
+		// THEN
+		assertSameResult(result);
+	}
+
+	@Test
+	public void testRun_ResumeWithAnotherInputRejected() throws OrderEntryException
+	{
+		// GIVEN
+		try
+		{
+			crash(1500);
+			Files.write(input, "1 book at 12.49 each\n\n".getBytes(StandardCharsets.US_ASCII), StandardOpenOption.APPEND);
+		}
+		catch (IOException e)
+		{
+			fail("Should have prepared the run: " + e);
+		}
+
+		// WHEN
+		try
+		{
+			newRunner(new OrderService()).run(input, output);
+		}
+		// THEN
+		catch (IOException e)
+		{
+			return;
+		}
+
+		fail("Should have thrown an IOException");
+	}
+
+	@Test
+	public void testRun_CompletedRunNotCountedTwice() throws OrderEntryException, IOException
+	{
+		// GIVEN
+		newRunner(new OrderService()).run(input, output);
+
+		// WHEN
+		BatchResultModel result = newRunner(new OrderService()).run(input, output);
+
+		// THEN
+		assertSameResult(result);
+	}
+
+	@Test
+	public void testRun_RangeResumeAfterCrash() throws OrderEntryException, IOException
+	{
+		// GIVEN
+		long[] boundaries = new ShardPlanner().split(input, 2);
+		Path expectedRange = folder.getRoot().toPath().resolve("expected-range.txt");
+		BatchResultModel expectedResult = new BatchRunner(new OrderService()).run(input, expectedRange, boundaries[1], boundaries[2]);
+		crash(700, boundaries[1], boundaries[2]);
+
+		// WHEN
+		BatchResultModel result = newRunner(new OrderService()).run(input, output, boundaries[1], boundaries[2]);
+
+		// THEN
+		assertEquals(expectedResult.getOrders(), result.getOrders());
+		assertEquals(expectedResult.getEntries(), result.getEntries());
+		assertEquals(expectedResult.getTotalTaxes(), result.getTotalTaxes());
+		assertEquals(expectedResult.getTotalPrice(), result.getTotalPrice());
+		assertEquals(expectedResult.getInputOffset(), result.getInputOffset());
+		assertArrayEquals(Files.readAllBytes(expectedRange), Files.readAllBytes(output));
+	}
+
+	@Test
+	public void testRun_ResumeWithAnotherRangeRejected() throws OrderEntryException, IOException
+	{
+		// GIVEN
+		long[] boundaries = new ShardPlanner().split(input, 2);
+		crash(700, boundaries[1], boundaries[2]);
+
+		// WHEN
+		try
+		{
+			newRunner(new OrderService()).run(input, output, 0, boundaries[1]);
+		}
+		// THEN
+		catch (IOException e)
+		{
+			return;
+		}
+
+		fail("Should have thrown an IOException");
+	}
+
+	private void crash(int afterOrders) throws IOException
+	{
+		crash(afterOrders, 0, Long.MAX_VALUE);
+	}
+
+	private void crash(final int afterOrders, long startOffset, long endOffset) throws IOException
+	{
+		OrderService crashingService = new OrderService() {
+			private int orders;
+
+			@Override
+			public OrderResultModel evaluate(OrderModel order, TaxRateModel rates) throws OrderEntryException
+			{
+				if(++orders > afterOrders)
+				{
+					throw new IllegalStateException("simulated crash");
+				}
+				return super.evaluate(order, rates);
+			}
+		};
+
+		try
+		{
+			newRunner(crashingService).run(input, output, startOffset, endOffset);
+		}
+		catch (IllegalStateException | OrderEntryException e)
+		{
+			return;
+		}
+
+		fail("Should have crashed");
+	}
+
+	private JournaledBatchRunner newRunner(OrderService orderService)
+	{
+		JournaledBatchRunner runner = new JournaledBatchRunner(orderService, journal);
+		runner.setCommitOrders(100);
+		runner.setCheckpointCommits(4);
+		return runner;
+	}
+
+	private void assertSameResult(BatchResultModel result) throws IOException
+	{
+		assertEquals(expected.getOrders(), result.getOrders());
+		assertEquals(ENTRIES, result.getEntries());
+		assertEquals(expected.getTotalTaxes(), result.getTotalTaxes());
+		assertEquals(expected.getTotalPrice(), result.getTotalPrice());
+		assertEquals(Files.size(input), result.getInputOffset());
+		assertEquals(Files.size(expectedOutput), result.getOutputOffset());
+		assertArrayEquals(Files.readAllBytes(expectedOutput), Files.readAllBytes(output));
+	}
+}
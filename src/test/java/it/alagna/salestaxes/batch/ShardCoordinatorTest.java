@@ -0,0 +1,216 @@
+package it.alagna.salestaxes.batch;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import it.alagna.salextaxes.batch.BatchRunner;
+import it.alagna.salextaxes.batch.IWorkerLauncher;
+import it.alagna.salextaxes.batch.LocalWorkerLauncher;
+import it.alagna.salextaxes.batch.ShardCoordinator;
+import it.alagna.salextaxes.batch.ShardPlanner;
+import it.alagna.salextaxes.generator.OrderGenerator;
+import it.alagna.salextaxes.generator.OrderGeneratorSettings;
+import it.alagna.salextaxes.io.OrderTextWriter;
+import it.alagna.salextaxes.model.BatchResultModel;
+import it.alagna.salextaxes.model.ShardResultModel;
+import it.alagna.salextaxes.model.ShardedBatchResultModel;
+import it.alagna.salextaxes.service.impl.OrderService;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ShardCoordinatorTest {
+
+	private static final int ENTRIES = 5000;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Path input, expectedOutput, output, workDirectory;
+	private BatchResultModel expected;
+
+	@Before
+	public void setup() throws Exception
+	{
+		input = folder.newFile("orders.txt").toPath();
+		expectedOutput = folder.getRoot().toPath().resolve("expected.txt");
+		output = folder.getRoot().toPath().resolve("receipts.txt");
+		workDirectory = folder.getRoot().toPath().resolve("shards");
+
+		OutputStream out = Files.newOutputStream(input);
+		new OrderGenerator(new OrderGeneratorSettings()).write(new OrderTextWriter(out), ENTRIES);
+		out.close();
+
+		expected = new BatchRunner(new OrderService()).run(input, expectedOutput);
+	}
+
+	@Test
+	public void testSplit_OrderBoundaries() throws IOException
+	{
+		// WHEN
+		long[] boundaries = new ShardPlanner().split(input, 7);
+
+		// THEN
+		byte[] bytes = Files.readAllBytes(input);
+		assertEquals(8, boundaries.length);
+		assertEquals(0, boundaries[0]);
+		assertEquals(bytes.length, boundaries[boundaries.length - 1]);
+		for(int i = 1; i < boundaries.length - 1; i++)
+		{
+			int boundary = (int) boundaries[i];
+			assertTrue(boundary > boundaries[i - 1]);
+			assertEquals('\n', bytes[boundary - 1]);
+			assertEquals('\n', bytes[boundary - 2]);
+		}
+	}
+
+	@Test
+	public void testSplit_CrLfAndFewOrders() throws IOException
+	{
+		// GIVEN
+		Path small = folder.newFile("small.txt").toPath();
+		Files.write(small, "1 book at 12.49 each\r\n\r\n1 music CD at 14.99 each\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+
+		// WHEN
+		long[] boundaries = new ShardPlanner().split(small, 10);
+
+		// THEN
+		assertArrayEquals(new long[] { 0, 24, 52 }, boundaries);
+	}
+
+	@Test
+	public void testRun_RangesSplitBetweenEmptyLines() throws Exception
+	{
+		// GIVEN
+		Path small = folder.newFile("small.txt").toPath();
+		Files.write(small, "1 book at 12.49 each\n\n\n1 music CD at 14.99 each\n\n".getBytes(StandardCharsets.UTF_8));
+		long size = Files.size(small);
+		BatchRunner runner = new BatchRunner(new OrderService());
+		BatchResultModel whole = runner.run(small, folder.getRoot().toPath().resolve("whole.txt"));
+
+		// every line start outside an order: the first empty line, the second one, the second order, the end
+		for(long boundary : new long[] { 0, 21, 22, 23, size })
+		{
+			// WHEN
+			BatchResultModel first = runner.run(small, folder.getRoot().toPath().resolve("first.txt"), 0, boundary);
+			BatchResultModel second = runner.run(small, folder.getRoot().toPath().resolve("second.txt"), boundary, size);
+
+			// THEN
+			String at = "boundary " + boundary;
+			assertEquals(at, 2, whole.getOrders());
+			assertEquals(at, whole.getOrders(), first.getOrders() + second.getOrders());
+			assertEquals(at, whole.getTotalPrice(), first.getTotalPrice().add(second.getTotalPrice()));
+		}
+	}
+
+	@Test
+	public void testRun_SameAsSingleRunner() throws Exception
+	{
+		// GIVEN
+		ShardCoordinator coordinator = new ShardCoordinator(new LocalWorkerLauncher());
+		coordinator.setWorkers(3);
+
+		// WHEN
+		ShardedBatchResultModel result = coordinator.run(input, output, workDirectory);
+
+		// THEN
+		assertSameResult(result);
+		assertEquals(3, result.getShards().size());
+		for(ShardResultModel shard : result.getShards())
+		{
+			assertEquals(1, shard.getAttempts());
+			assertTrue(shard.getEntriesPerSecond() > 0);
+		}
+	}
+
+	@Test
+	public void testRun_FailedWorkerReassigned() throws Exception
+	{
+		// GIVEN
+		final LocalWorkerLauncher local = new LocalWorkerLauncher();
+		IWorkerLauncher failingOnce = new IWorkerLauncher() {
+			private boolean failed;
+
+			public Process launch(List<String> arguments, File log) throws IOException
+			{
+				List<String> launched = new ArrayList<String>(arguments);
+				if(!failed && !"0".equals(launched.get(1)))
+				{
+					failed = true;
+					launched.set(0, input + ".missing");
+				}
+				return local.launch(launched, log);
+			}
+
+			public String getName()
+			{
+				return local.getName();
+			}
+		};
+		ShardCoordinator coordinator = new ShardCoordinator(failingOnce);
+		coordinator.setWorkers(2);
+
+		// WHEN
+		ShardedBatchResultModel result = coordinator.run(input, output, workDirectory);
+
+		// THEN
+		assertSameResult(result);
+		assertEquals(1, result.getShards().get(0).getAttempts());
+		assertEquals(2, result.getShards().get(1).getAttempts());
+	}
+
+	@Test
+	public void testRun_FailedShardsMovedToAnotherLauncher() throws Exception
+	{
+		// GIVEN
+		final LocalWorkerLauncher local = new LocalWorkerLauncher();
+		IWorkerLauncher broken = new IWorkerLauncher() {
+			public Process launch(List<String> arguments, File log) throws IOException
+			{
+				List<String> launched = new ArrayList<String>(arguments);
+				launched.set(0, input + ".missing");
+				return local.launch(launched, log);
+			}
+
+			public String getName()
+			{
+				return "broken";
+			}
+		};
+		ShardCoordinator coordinator = new ShardCoordinator(Arrays.asList(broken, local));
+		coordinator.setWorkers(4);
+
+		// WHEN
+		ShardedBatchResultModel result = coordinator.run(input, output, workDirectory);
+
+		// THEN
+		assertSameResult(result);
+		assertEquals(4, result.getShards().size());
+		for(ShardResultModel shard : result.getShards())
+		{
+			assertEquals(local.getName(), shard.getWorker());
+			assertEquals(shard.getIndex() % 2 == 0 ? 2 : 1, shard.getAttempts());
+		}
+	}
+
+	private void assertSameResult(BatchResultModel result) throws IOException
+	{
+		assertEquals(expected.getOrders(), result.getOrders());
+		assertEquals(ENTRIES, result.getEntries());
+		assertEquals(expected.getTotalTaxes(), result.getTotalTaxes());
+		assertEquals(expected.getTotalPrice(), result.getTotalPrice());
+		assertArrayEquals(Files.readAllBytes(expectedOutput), Files.readAllBytes(output));
+	}
+}
@@ -0,0 +1,149 @@
+package it.alagna.salestaxes.cli;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+import it.alagna.salextaxes.cli.PricingCommand;
+import it.alagna.salextaxes.exception.OrderEntryException;
+import it.alagna.salextaxes.io.OrderTextReader;
+import it.alagna.salextaxes.model.OrderModel;
+import it.alagna.salextaxes.model.OrderResultModel;
+import it.alagna.salextaxes.model.TaxRateModel;
+import it.alagna.salextaxes.service.impl.OrderService;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class PricingCommandTest {
+
+	private static final String INPUT = "1 book at 12.49 each (exempt)\n"
+			+ "1 music CD at 14.99 each\n"
+			+ "1 chocolate bar at 0.85 each (exempt)\n"
+			+ "\n"
+			+ "1 imported box of chocolates at 10.00 each (exempt)\n"
+			+ "1 imported bottle of perfume at 47.50 each\n";
+
+	private static final String OUTPUT = "1 book: 12.49\n"
+			+ "1 music CD: 16.49\n"
+			+ "1 chocolate bar: 0.85\n"
+			+ "Sales Taxes: 1.50\n"
+			+ "Total: 29.83\n"
+			+ "\n"
+			+ "1 imported box of chocolates: 10.50\n"
+			+ "1 imported bottle of perfume: 54.65\n"
+			+ "Sales Taxes: 7.65\n"
+			+ "Total: 65.15\n"
+			+ "\n";
+
+	@Test
+	public void testPrice() throws OrderEntryException, IOException
+	{
+		// GIVEN
+		OrderTextReader reader = new OrderTextReader(new ByteArrayInputStream(INPUT.getBytes(StandardCharsets.UTF_8)));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		// WHEN
+		long orders = PricingCommand.price(reader, out, new OrderService());
+
+		// THEN
+		assertEquals(2, orders);
+		assertEquals(OUTPUT, new String(out.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testPrice_CloseFailureSuppressed() throws IOException
+	{
+		// GIVEN
+		OrderTextReader reader = new OrderTextReader(new ByteArrayInputStream(INPUT.getBytes(StandardCharsets.UTF_8)));
+		OutputStream out = new ByteArrayOutputStream() {
+			@Override
+			public void close() throws IOException
+			{
+				throw new IOException("simulated close failure");
+			}
+		};
+		OrderService failingService = new OrderService() {
+			@Override
+			public OrderResultModel evaluate(OrderModel order, TaxRateModel rates) throws OrderEntryException
+			{
+				throw new OrderEntryException("simulated invalid order");
+			}
+		};
+
+		// WHEN
+		try
+		{
+			PricingCommand.price(reader, out, failingService);
+		}
+		// THEN
+		catch (OrderEntryException e)
+		{
+			assertEquals("simulated invalid order", e.getMessage());
+			assertEquals(1, e.getSuppressed().length);
+			assertEquals("simulated close failure", e.getSuppressed()[0].getMessage());
+			return;
+		}
+
+		fail("Should have thrown an OrderEntryException");
+	}
+
+	@Test
+	public void testRun_StandardStreamsNotClosed()
+	{
+		// GIVEN
+		final boolean[] closed = new boolean[2];
+		ByteArrayOutputStream out = new ByteArrayOutputStream() {
+			@Override
+			public void close()
+			{
+				closed[1] = true;
+			}
+		};
+		InputStream in = new ByteArrayInputStream(INPUT.getBytes(StandardCharsets.UTF_8)) {
+			@Override
+			public void close()
+			{
+				closed[0] = true;
+			}
+		};
+		InputStream stdin = System.in;
+		PrintStream stdout = System.out;
+		System.setIn(in);
+		System.setOut(new PrintStream(out));
+
+		// WHEN
+		int exitCode;
+		try
+		{
+			exitCode = PricingCommand.run(new String[0]);
+		}
+		finally
+		{
+			System.setIn(stdin);
+			System.setOut(stdout);
+		}
+
+		// THEN
+		assertEquals(PricingCommand.EXIT_OK, exitCode);
+		assertEquals(OUTPUT, new String(out.toByteArray(), StandardCharsets.UTF_8));
+		assertFalse(closed[0]);
+		assertFalse(closed[1]);
+	}
+
+	@Test
+	public void testRun_Usage()
+	{
+		// WHEN
+		int exitCode = PricingCommand.run(new String[] { "--unknown" });
+
+		// THEN
+		assertEquals(PricingCommand.EXIT_USAGE, exitCode);
+	}
+}
@@ -0,0 +1,119 @@
+package it.alagna.salestaxes.generator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import it.alagna.salextaxes.generator.OrderGenerator;
+import it.alagna.salextaxes.generator.OrderGeneratorSettings;
+import it.alagna.salextaxes.io.IOrderWriter;
+import it.alagna.salextaxes.model.OrderEntryModel;
+import it.alagna.salextaxes.model.OrderModel;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class OrderGeneratorTest {
+
+	private static final int ORDERS = 2000;
+
+	private OrderGeneratorSettings settings;
+
+	@Before
+	public void setup()
+	{
+		settings = new OrderGeneratorSettings();
+		settings.setSeed(7);
+		settings.setMinEntriesPerOrder(2);
+		settings.setMaxEntriesPerOrder(6);
+		settings.setMinPrice(BigDecimal.valueOf(1.00).setScale(2));
+		settings.setMaxPrice(BigDecimal.valueOf(3.00).setScale(2));
+		settings.setImportedRatio(0.25);
+		settings.setExemptRatio(0.5);
+		settings.setDescriptionCardinality(200);
+	}
+
+	@Test
+	public void testGenerate_SameSeedSameOrders()
+	{
+		// WHEN
+		List<OrderModel> first = new OrderGenerator(settings).generate(ORDERS);
+		List<OrderModel> second = new OrderGenerator(settings).generate(ORDERS);
+
+		// THEN
+		assertEquals(describe(first), describe(second));
+	}
+
+	@Test
+	public void testGenerate_Distributions()
+	{
+		// WHEN
+		List<OrderModel> orders = new OrderGenerator(settings).generate(ORDERS);
+
+		// THEN
+		int entries = 0, imported = 0, exempt = 0;
+		Set<String> descriptions = new HashSet<String>();
+		for(OrderModel order : orders)
+		{
+			int size = order.getEntries().size();
+			assertTrue(size >= 2 && size <= 6);
+			for(OrderEntryModel entry : order.getEntries())
+			{
+				assertTrue(entry.getPricePerUnit().compareTo(settings.getMinPrice()) >= 0);
+				assertTrue(entry.getPricePerUnit().compareTo(settings.getMaxPrice()) <= 0);
+				assertTrue(entry.getQuantity() >= settings.getMinQuantity() && entry.getQuantity() <= settings.getMaxQuantity());
+				descriptions.add(entry.getDescription());
+				imported += entry.isImported() ? 1 : 0;
+				exempt += entry.isTaxExempt() ? 1 : 0;
+				entries++;
+			}
+		}
+
+		assertEquals(200, descriptions.size());
+		assertEquals(0.25, (double) imported / entries, 0.03);
+		assertEquals(0.5, (double) exempt / entries, 0.03);
+	}
+
+	@Test
+	public void testWrite_ExactNumberOfEntries() throws IOException
+	{
+		// GIVEN
+		final List<OrderModel> written = new ArrayList<OrderModel>();
+		IOrderWriter writer = new IOrderWriter() {
+			public void write(OrderModel order) { written.add(order); }
+			public void flush() {}
+			public void close() {}
+		};
+
+		// WHEN
+		long orders = new OrderGenerator(settings).write(writer, 1001);
+
+		// THEN
+		int entries = 0;
+		for(OrderModel order : written)
+		{
+			entries += order.getEntries().size();
+		}
+		assertEquals(written.size(), orders);
+		assertEquals(1001, entries);
+	}
+
+	private List<String> describe(List<OrderModel> orders)
+	{
+		List<String> result = new ArrayList<String>();
+		for(OrderModel order : orders)
+		{
+			for(OrderEntryModel entry : order.getEntries())
+			{
+				result.add(entry + " " + entry.isTaxExempt());
+			}
+			result.add("");
+		}
+		return result;
+	}
+}
@@ -0,0 +1,71 @@
+package it.alagna.salestaxes.io;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import it.alagna.salextaxes.exception.OrderFormatException;
+import it.alagna.salextaxes.generator.OrderGenerator;
+import it.alagna.salextaxes.generator.OrderGeneratorSettings;
+import it.alagna.salextaxes.io.OrderBinaryReader;
+import it.alagna.salextaxes.io.OrderBinaryWriter;
+import it.alagna.salextaxes.model.OrderModel;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class OrderBinaryReaderTest {
+
+	@Test
+	public void testRoundTrip() throws IOException
+	{
+		// GIVEN
+		List<OrderModel> orders = new OrderGenerator(new OrderGeneratorSettings()).generate(500);
+
+		// WHEN
+		OrderBinaryReader reader = new OrderBinaryReader(new ByteArrayInputStream(write(orders)));
+
+		// THEN
+		for(OrderModel expected : orders)
+		{
+			OrderTextReaderTest.assertSameOrder(expected, reader.read());
+		}
+		assertNull(reader.read());
+	}
+
+	@Test
+	public void testRead_Truncated() throws IOException
+	{
+		// GIVEN
+		byte[] bytes = write(new OrderGenerator(new OrderGeneratorSettings()).generate(1));
+		OrderBinaryReader reader = new OrderBinaryReader(new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 1)));
+
+		// WHEN
+		try
+		{
+			reader.read();
+		}
+		// THEN
+		catch (OrderFormatException e)
+		{
+			return;
+		}
+
+		fail("Should have thrown an OrderFormatException");
+	}
+
+	private byte[] write(List<OrderModel> orders) throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		OrderBinaryWriter writer = new OrderBinaryWriter(out);
+		for(OrderModel order : orders)
+		{
+			writer.write(order);
+		}
+		writer.close();
+		return out.toByteArray();
+	}
+}
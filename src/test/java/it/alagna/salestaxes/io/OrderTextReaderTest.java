@@ -0,0 +1,148 @@
+package it.alagna.salestaxes.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import it.alagna.salextaxes.exception.OrderFormatException;
+import it.alagna.salextaxes.generator.OrderGenerator;
+import it.alagna.salextaxes.generator.OrderGeneratorSettings;
+import it.alagna.salextaxes.io.OrderTextReader;
+import it.alagna.salextaxes.io.OrderTextWriter;
+import it.alagna.salextaxes.model.OrderEntryModel;
+import it.alagna.salextaxes.model.OrderModel;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.Test;
+
+public class OrderTextReaderTest {
+
+	private static final String INPUT = "1 book at 12.49 each (exempt)\n"
+			+ "2 imported bottle of perfume at 47.50 each\n"
+			+ "\n"
+			+ "1 box of chocolates at 10.00 each (exempt)\r\n"
+			+ "\r\n"
+			+ "\n"
+			+ "3 music CD at 14.99 each";
+
+	@Test
+	public void testRead() throws IOException
+	{
+		// GIVEN
+		OrderTextReader reader = reader(INPUT, 0);
+
+		// WHEN
+		OrderModel first = reader.read();
+		long firstEnd = reader.getPosition();
+		OrderModel second = reader.read();
+		OrderModel third = reader.read();
+
+		// THEN
+		assertEquals(2, first.getEntries().size());
+		OrderEntryModel book = first.getEntries().get(0);
+		assertEquals("book", book.getDescription());
+		assertEquals(1, book.getQuantity());
+		assertEquals(new BigDecimal("12.49"), book.getPricePerUnit());
+		assertTrue(book.isTaxExempt());
+		assertFalse(book.isImported());
+
+		OrderEntryModel perfume = first.getEntries().get(1);
+		assertEquals("bottle of perfume", perfume.getDescription());
+		assertEquals(2, perfume.getQuantity());
+		assertFalse(perfume.isTaxExempt());
+		assertTrue(perfume.isImported());
+
+		assertEquals(INPUT.indexOf("1 box"), firstEnd);
+		assertEquals("box of chocolates", second.getEntries().get(0).getDescription());
+		assertEquals("3 music CD at 14.99 each", third.getEntries().get(0).toString());
+		assertNull(reader.read());
+		assertEquals(INPUT.length(), reader.getPosition());
+	}
+
+	@Test
+	public void testRead_FromPosition() throws IOException
+	{
+		// GIVEN
+		int start = INPUT.indexOf("1 box");
+		OrderTextReader reader = reader(INPUT.substring(start), start);
+
+		// WHEN
+		OrderModel order = reader.read();
+
+		// THEN
+		assertEquals("1 box of chocolates at 10.00 each", order.getEntries().get(0).toString());
+		assertEquals(INPUT.indexOf("\r\n\r\n") + 4, reader.getPosition());
+	}
+
+	@Test
+	public void testRead_Malformed() throws IOException
+	{
+		// GIVEN
+		OrderTextReader reader = reader("1 book for 12.49\n", 0);
+
+		// WHEN
+		try
+		{
+			reader.read();
+		}
+		// THEN
+		catch (OrderFormatException e)
+		{
+			return;
+		}
+
+		fail("Should have thrown an OrderFormatException");
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException
+	{
+		// GIVEN
+		List<OrderModel> orders = new OrderGenerator(new OrderGeneratorSettings()).generate(500);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		OrderTextWriter writer = new OrderTextWriter(out);
+		for(OrderModel order : orders)
+		{
+			writer.write(order);
+		}
+		writer.close();
+
+		// WHEN
+		OrderTextReader reader = new OrderTextReader(new ByteArrayInputStream(out.toByteArray()));
+
+		// THEN
+		for(OrderModel expected : orders)
+		{
+			assertSameOrder(expected, reader.read());
+		}
+		assertNull(reader.read());
+		assertEquals(out.size(), reader.getPosition());
+	}
+
+	static void assertSameOrder(OrderModel expected, OrderModel actual)
+	{
+		assertEquals(expected.getEntries().size(), actual.getEntries().size());
+		for(int i = 0; i < expected.getEntries().size(); i++)
+		{
+			OrderEntryModel expectedEntry = expected.getEntries().get(i);
+			OrderEntryModel actualEntry = actual.getEntries().get(i);
+			assertEquals(expectedEntry.getDescription(), actualEntry.getDescription());
+			assertEquals(expectedEntry.getQuantity(), actualEntry.getQuantity());
+			assertEquals(expectedEntry.getPricePerUnit(), actualEntry.getPricePerUnit());
+			assertEquals(expectedEntry.isImported(), actualEntry.isImported());
+			assertEquals(expectedEntry.isTaxExempt(), actualEntry.isTaxExempt());
+		}
+	}
+
+	private OrderTextReader reader(String text, long start)
+	{
+		return new OrderTextReader(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), start);
+	}
+}
@@ -0,0 +1,176 @@
+package it.alagna.salestaxes.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import it.alagna.salextaxes.exception.OrderEntryException;
+import it.alagna.salextaxes.generator.OrderGenerator;
+import it.alagna.salextaxes.generator.OrderGeneratorSettings;
+import it.alagna.salextaxes.io.ByteBufferPool;
+import it.alagna.salextaxes.io.ReceiptByteRenderer;
+import it.alagna.salextaxes.model.OrderEntryModel;
+import it.alagna.salextaxes.model.OrderModel;
+import it.alagna.salextaxes.service.impl.OrderService;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ReceiptByteRendererTest {
+
+	private static final String SEPARATOR = "\n\n";
+
+	private OrderService orderService;
+	private List<OrderModel> orders;
+
+	@Before
+	public void setup()
+	{
+		orderService = new OrderService();
+		orders = new OrderGenerator(new OrderGeneratorSettings()).generate(1000);
+	}
+
+	@Test
+	public void testRender_SameBytesAsOutputString() throws OrderEntryException, IOException
+	{
+		// GIVEN
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ReceiptByteRenderer renderer = new ReceiptByteRenderer(orderService, Channels.newChannel(out), SEPARATOR);
+
+		// WHEN
+		for(OrderModel order : orders)
+		{
+			renderer.render(order);
+		}
+		renderer.close();
+
+		// THEN
+		assertArrayEquals(expected(orders), out.toByteArray());
+		assertEquals(out.size(), renderer.getBytesWritten());
+	}
+
+	@Test
+	public void testRender_SmallBuffersGatheringWrites() throws OrderEntryException, IOException
+	{
+		// GIVEN
+		Path file = Files.createTempFile("receipts", ".txt");
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE);
+		ReceiptByteRenderer renderer = new ReceiptByteRenderer(orderService, channel, SEPARATOR, new ByteBufferPool(7, 4), 3);
+
+		// WHEN
+		for(OrderModel order : orders)
+		{
+			renderer.render(order);
+		}
+		renderer.close();
+		channel.close();
+
+		// THEN
+		assertArrayEquals(expected(orders), Files.readAllBytes(file));
+		Files.delete(file);
+	}
+
+	@Test
+	public void testRender_NonAsciiAndUnusualAmounts() throws OrderEntryException, IOException
+	{
+		// GIVEN
+		OrderEntryModel entry1 = new OrderEntryModel();
+		entry1.setDescription("caffè € 🍫 box");
+		entry1.setPricePerUnit(BigDecimal.valueOf(0.05).setScale(2));
+		entry1.setQuantity(1000);
+		entry1.setImported(true);
+
+		OrderEntryModel entry2 = new OrderEntryModel();
+		entry2.setDescription("scale 3 item");
+		entry2.setPricePerUnit(new BigDecimal("1.005"));
+		entry2.setQuantity(0);
+		entry2.setTaxExempt(true);
+
+		OrderModel order = new OrderModel();
+		order.setEntries(Arrays.asList(entry1, entry2));
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ReceiptByteRenderer renderer = new ReceiptByteRenderer(orderService, Channels.newChannel(out), SEPARATOR);
+
+		// WHEN
+		renderer.render(order);
+		renderer.close();
+
+		// THEN
+		assertArrayEquals(expected(Arrays.asList(order)), out.toByteArray());
+	}
+
+	@Test
+	public void testRender_MixedCurrencies() throws OrderEntryException, IOException
+	{
+		// GIVEN
+		OrderModel order = new OrderModel();
+		order.getEntries().addAll(orders.get(0).getEntries());
+		for(OrderEntryModel entry : orders.get(1).getEntries())
+		{
+			entry.setCurrency(Currency.getInstance("JPY"));
+			entry.setPricePerUnit(entry.getPricePerUnit().movePointRight(2));
+			order.getEntries().add(entry);
+		}
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ReceiptByteRenderer renderer = new ReceiptByteRenderer(orderService, Channels.newChannel(out), SEPARATOR);
+
+		// WHEN
+		renderer.render(order);
+		renderer.close();
+
+		// THEN
+		assertArrayEquals(expected(Arrays.asList(order)), out.toByteArray());
+	}
+
+	@Test
+	public void testRender_FailedOrderWritesNothing() throws OrderEntryException, IOException
+	{
+		// GIVEN
+		OrderModel failing = new OrderModel();
+		failing.getEntries().addAll(orders.get(1).getEntries());
+		failing.getEntries().add(new OrderEntryModel());
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ReceiptByteRenderer renderer = new ReceiptByteRenderer(orderService, Channels.newChannel(out), SEPARATOR);
+		renderer.render(orders.get(0));
+
+		// WHEN
+		try
+		{
+			renderer.render(failing);
+			fail("Should have thrown an OrderEntryException");
+		}
+		catch (OrderEntryException e)
+		{
+			renderer.close();
+		}
+
+		// THEN
+		assertArrayEquals(expected(orders.subList(0, 1)), out.toByteArray());
+		assertEquals(out.size(), renderer.getBytesWritten());
+	}
+
+	private byte[] expected(List<OrderModel> orders) throws OrderEntryException
+	{
+		StringBuilder builder = new StringBuilder();
+		for(OrderModel order : orders)
+		{
+			builder.append(orderService.toOutputString(order)).append(SEPARATOR);
+		}
+		return builder.toString().getBytes(StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,95 @@
+package it.alagna.salestaxes.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import it.alagna.salextaxes.model.OrderEntryModel;
+
+import java.math.BigDecimal;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class OrderEntryModelTest {
+
+	private static final String DESCRIPTION = "box of chocolates";
+	private static final String OTHER_DESCRIPTION = "bottle of perfume";
+	private static final BigDecimal PRICE_PER_UNIT = BigDecimal.valueOf(10.00).setScale(2);
+	private static final BigDecimal OTHER_PRICE_PER_UNIT = BigDecimal.valueOf(12.50).setScale(2);
+
+	private OrderEntryModel entry;
+
+	@Before
+	public void setup()
+	{
+		entry = new OrderEntryModel();
+		entry.setDescription(DESCRIPTION);
+		entry.setPricePerUnit(PRICE_PER_UNIT);
+		entry.setQuantity(2);
+		entry.setImported(false);
+		entry.setTaxExempt(false);
+	}
+
+	@Test
+	public void testFullDescription_Cached()
+	{
+		// WHEN
+		String first = entry.getFullDescription();
+		String second = entry.getFullDescription();
+
+		// THEN
+		assertEquals("2 box of chocolates", first);
+		assertSame(first, second);
+	}
+
+	@Test
+	public void testFullDescription_InvalidatedBySetters()
+	{
+		// GIVEN
+		entry.getFullDescription();
+
+		// WHEN
+		entry.setImported(true);
+
+		// THEN
+		assertEquals("2 imported box of chocolates", entry.getFullDescription());
+
+		// WHEN
+		entry.setQuantity(3);
+
+		// THEN
+		assertEquals("3 imported box of chocolates", entry.getFullDescription());
+
+		// WHEN
+		entry.setDescription(OTHER_DESCRIPTION);
+
+		// THEN
+		assertEquals("3 imported bottle of perfume", entry.getFullDescription());
+		assertEquals("3 imported bottle of perfume at 10.00 each", entry.toString());
+	}
+
+	@Test
+	public void testNetPrice_InvalidatedBySetters()
+	{
+		// GIVEN
+		assertEquals(BigDecimal.valueOf(20.00).setScale(2), entry.getNetPrice());
+
+		// WHEN
+		entry.setQuantity(3);
+
+		// THEN
+		assertEquals(BigDecimal.valueOf(30.00).setScale(2), entry.getNetPrice());
+
+		// WHEN
+		entry.setPricePerUnit(OTHER_PRICE_PER_UNIT);
+
+		// THEN
+		assertEquals(BigDecimal.valueOf(37.50).setScale(2), entry.getNetPrice());
+
+		// WHEN
+		entry.setPricePerUnit(null);
+
+		// THEN
+		assertNull(entry.getNetPrice());
+	}
+}
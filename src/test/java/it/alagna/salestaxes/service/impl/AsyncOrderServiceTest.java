@@ -0,0 +1,296 @@
+package it.alagna.salestaxes.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import it.alagna.salextaxes.exception.OrderEntryException;
+import it.alagna.salextaxes.generator.OrderGenerator;
+import it.alagna.salextaxes.generator.OrderGeneratorSettings;
+import it.alagna.salextaxes.model.AsyncMetricsModel;
+import it.alagna.salextaxes.model.OrderEntryModel;
+import it.alagna.salextaxes.model.OrderModel;
+import it.alagna.salextaxes.service.impl.AsyncOrderService;
+import it.alagna.salextaxes.service.impl.OrderService;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AsyncOrderServiceTest {
+
+	private static final int ORDERS = 200;
+	private static final long WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+	private final CountDownLatch started = new CountDownLatch(1);
+	private final CountDownLatch released = new CountDownLatch(1);
+
+	private OrderService orderService;
+	private AsyncOrderService asyncOrderService;
+	private List<OrderModel> orders;
+
+	@Before
+	public void setup()
+	{
+		orderService = new OrderService();
+		orders = new OrderGenerator(new OrderGeneratorSettings()).generate(ORDERS);
+	}
+
+	@After
+	public void tearDown()
+	{
+		released.countDown();
+		if(asyncOrderService != null)
+		{
+			asyncOrderService.close();
+		}
+	}
+
+	@Test
+	public void testResults_SameAsOrderService() throws Exception
+	{
+		// GIVEN
+		asyncOrderService = new AsyncOrderService(orderService);
+		List<CompletableFuture<BigDecimal>> taxes = new ArrayList<CompletableFuture<BigDecimal>>();
+		List<CompletableFuture<BigDecimal>> prices = new ArrayList<CompletableFuture<BigDecimal>>();
+		List<CompletableFuture<String>> receipts = new ArrayList<CompletableFuture<String>>();
+
+		// WHEN
+		for(OrderModel order : orders)
+		{
+			taxes.add(asyncOrderService.evaluateTotalTaxes(order));
+			prices.add(asyncOrderService.evaluateTotalPrice(order));
+			receipts.add(asyncOrderService.toOutputString(order));
+		}
+
+		// THEN
+		OrderService expected = new OrderService();
+		for(int i = 0; i < ORDERS; i++)
+		{
+			assertEquals(expected.evaluateTotalTaxes(orders.get(i)), taxes.get(i).get(5, TimeUnit.SECONDS));
+			assertEquals(expected.evaluateTotalPrice(orders.get(i)), prices.get(i).get(5, TimeUnit.SECONDS));
+			assertEquals(expected.toOutputString(orders.get(i)), receipts.get(i).get(5, TimeUnit.SECONDS));
+		}
+		assertEquals(3 * ORDERS, asyncOrderService.getMetrics().getRequests());
+	}
+
+	@Test
+	public void testBatching_RequestsQueuedDuringEvaluation() throws Exception
+	{
+		// GIVEN
+		asyncOrderService = new AsyncOrderService(blockingService(), 100, 16, WINDOW_NANOS, null, 1);
+		CompletableFuture<BigDecimal> first = asyncOrderService.evaluateTotalPrice(orders.get(0));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+
+		// WHEN
+		List<CompletableFuture<BigDecimal>> queued = new ArrayList<CompletableFuture<BigDecimal>>();
+		for(int i = 1; i <= 40; i++)
+		{
+			queued.add(asyncOrderService.evaluateTotalPrice(orders.get(i)));
+		}
+		released.countDown();
+		CompletableFuture.allOf(queued.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.SECONDS);
+
+		// THEN
+		AsyncMetricsModel metrics = asyncOrderService.getMetrics();
+		assertEquals(orderService.evaluateTotalPrice(orders.get(0)), first.get());
+		assertEquals(41, metrics.getRequests());
+		assertEquals(16, metrics.getMaxBatchSize());
+		assertEquals(4, metrics.getBatches());
+		assertTrue(metrics.getAverageBatchSize() > 10);
+		assertTrue(metrics.getMaxWaitNanos() > 0);
+	}
+
+	@Test
+	public void testBatching_EvaluatedConcurrently() throws Exception
+	{
+		// GIVEN
+		asyncOrderService = new AsyncOrderService(blockingService(), 100, 16, 0, null, 2);
+		CompletableFuture<BigDecimal> blocked = asyncOrderService.evaluateTotalPrice(orders.get(0));
+		CompletableFuture<String> completedOn = blocked.thenApply(new Function<BigDecimal, String>() {
+			public String apply(BigDecimal price)
+			{
+				return Thread.currentThread().getName();
+			}
+		});
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+
+		// WHEN
+		BigDecimal other = asyncOrderService.evaluateTotalTaxes(orders.get(1)).get(5, TimeUnit.SECONDS);
+		released.countDown();
+
+		// THEN
+		assertEquals(orderService.evaluateTotalTaxes(orders.get(1)), other);
+		assertTrue(completedOn.get(5, TimeUnit.SECONDS).startsWith("async-order-service-batch-"));
+		assertEquals(orderService.evaluateTotalPrice(orders.get(0)), blocked.get());
+	}
+
+	@Test
+	public void testBatching_WaitBoundedByWindow() throws Exception
+	{
+		// GIVEN
+		asyncOrderService = new AsyncOrderService(orderService, 100, 16, WINDOW_NANOS);
+
+		// WHEN
+		long start = System.nanoTime();
+		asyncOrderService.evaluateTotalTaxes(orders.get(0)).get(5, TimeUnit.SECONDS);
+		long elapsed = System.nanoTime() - start;
+
+		// THEN
+		AsyncMetricsModel metrics = asyncOrderService.getMetrics();
+		assertEquals(1, metrics.getBatches());
+		assertTrue(elapsed >= WINDOW_NANOS);
+		assertTrue(metrics.getMaxWaitNanos() >= WINDOW_NANOS);
+		assertTrue(metrics.getMaxWaitNanos() < TimeUnit.SECONDS.toNanos(5));
+	}
+
+	@Test
+	public void testSubmit_RejectedWhenQueueFull() throws Exception
+	{
+		// GIVEN
+		asyncOrderService = new AsyncOrderService(blockingService(), 2, 16, 0, null, 1);
+		asyncOrderService.evaluateTotalPrice(orders.get(0));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		asyncOrderService.evaluateTotalPrice(orders.get(1));
+		asyncOrderService.evaluateTotalPrice(orders.get(2));
+
+		// WHEN
+		CompletableFuture<BigDecimal> rejected = asyncOrderService.evaluateTotalPrice(orders.get(3));
+
+		// THEN
+		assertFailure(rejected, RejectedExecutionException.class);
+		assertEquals(1, asyncOrderService.getMetrics().getRejected());
+		assertEquals(2, asyncOrderService.getMetrics().getQueued());
+	}
+
+	@Test
+	public void testSubmit_FailedEntry() throws Exception
+	{
+		// GIVEN
+		asyncOrderService = new AsyncOrderService(orderService);
+		OrderModel invalid = new OrderModel();
+		invalid.getEntries().add(new OrderEntryModel());
+
+		// WHEN
+		CompletableFuture<BigDecimal> failed = asyncOrderService.evaluateTotalTaxes(invalid);
+		CompletableFuture<BigDecimal> valid = asyncOrderService.evaluateTotalTaxes(orders.get(0));
+
+		// THEN
+		assertFailure(failed, OrderEntryException.class);
+		assertEquals(orderService.evaluateTotalTaxes(orders.get(0)), valid.get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testSubmit_FailedWithError() throws Exception
+	{
+		// GIVEN
+		asyncOrderService = new AsyncOrderService(new OrderService() {
+			@Override
+			public BigDecimal evaluateTotalTaxes(OrderModel order) throws OrderEntryException
+			{
+				throw new StackOverflowError();
+			}
+		});
+
+		// WHEN
+		CompletableFuture<BigDecimal> failed = asyncOrderService.evaluateTotalTaxes(orders.get(0));
+		CompletableFuture<BigDecimal> valid = asyncOrderService.evaluateTotalPrice(orders.get(0));
+
+		// THEN
+		assertFailure(failed, StackOverflowError.class);
+		assertEquals(orderService.evaluateTotalPrice(orders.get(0)), valid.get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testClose_EvaluatesQueuedAndRejectsNew() throws Exception
+	{
+		// GIVEN
+		asyncOrderService = new AsyncOrderService(orderService, 1000, 16, WINDOW_NANOS);
+		List<CompletableFuture<BigDecimal>> queued = new ArrayList<CompletableFuture<BigDecimal>>();
+		for(OrderModel order : orders)
+		{
+			queued.add(asyncOrderService.evaluateTotalTaxes(order));
+		}
+
+		// WHEN
+		asyncOrderService.close();
+
+		// THEN
+		for(CompletableFuture<BigDecimal> future : queued)
+		{
+			assertTrue(future.isDone() && !future.isCompletedExceptionally());
+		}
+		assertFailure(asyncOrderService.evaluateTotalTaxes(orders.get(0)), RejectedExecutionException.class);
+	}
+
+	@Test
+	public void testClose_FromDependentStage() throws Exception
+	{
+		// GIVEN
+		asyncOrderService = new AsyncOrderService(blockingService(), 100, 16, 0, null, 1);
+		CompletableFuture<Void> closedBy = asyncOrderService.evaluateTotalPrice(orders.get(0)).thenAccept(new Consumer<BigDecimal>() {
+			public void accept(BigDecimal price)
+			{
+				asyncOrderService.close();
+			}
+		});
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		CompletableFuture<BigDecimal> queued = asyncOrderService.evaluateTotalPrice(orders.get(1));
+
+		// WHEN
+		released.countDown();
+
+		// THEN
+		closedBy.get(5, TimeUnit.SECONDS);
+		assertEquals(orderService.evaluateTotalPrice(orders.get(1)), queued.get(5, TimeUnit.SECONDS));
+		assertFailure(asyncOrderService.evaluateTotalPrice(orders.get(2)), RejectedExecutionException.class);
+	}
+
+	/**
+	 * @return a service blocking the first evaluation until the test releases it
+	 */
+	private OrderService blockingService()
+	{
+		return new OrderService() {
+			@Override
+			public BigDecimal evaluateTotalPrice(OrderModel order) throws OrderEntryException
+			{
+				started.countDown();
+				try
+				{
+					released.await();
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+				return super.evaluateTotalPrice(order);
+			}
+		};
+	}
+
+	private static void assertFailure(CompletableFuture<?> future, Class<? extends Throwable> expected) throws Exception
+	{
+		try
+		{
+			future.get(5, TimeUnit.SECONDS);
+		}
+		catch (ExecutionException e)
+		{
+			assertTrue(e.getCause().toString(), expected.isInstance(e.getCause()));
+			return;
+		}
+
+		fail("Should have thrown " + expected.getSimpleName());
+	}
+}
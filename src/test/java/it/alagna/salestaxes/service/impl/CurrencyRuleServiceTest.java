@@ -0,0 +1,99 @@
+package it.alagna.salestaxes.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import it.alagna.salextaxes.model.CurrencyRuleModel;
+import it.alagna.salextaxes.service.impl.CurrencyRuleService;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class CurrencyRuleServiceTest {
+
+	private static final Currency EUR = Currency.getInstance("EUR");
+	private static final Currency JPY = Currency.getInstance("JPY");
+	private static final Currency KWD = Currency.getInstance("KWD");
+	private static final Currency CHF = Currency.getInstance("CHF");
+
+	private CurrencyRuleService currencyRuleService;
+
+	@Before
+	public void setup()
+	{
+		currencyRuleService = new CurrencyRuleService();
+	}
+
+	@Test
+	public void testGetRule_DefaultTwoDigits()
+	{
+		// WHEN
+		CurrencyRuleModel rule = currencyRuleService.getRule(EUR);
+
+		// THEN
+		assertEquals(2, rule.getMinorDigits());
+		assertNull(rule.getRoundingIncrement());
+		assertEquals(0, rule.getRoundingIncrementMinorUnits());
+		assertSame(rule, currencyRuleService.getRule(EUR));
+	}
+
+	@Test
+	public void testGetRule_DefaultZeroDigits()
+	{
+		// WHEN
+		CurrencyRuleModel rule = currencyRuleService.getRule(JPY);
+
+		// THEN
+		assertEquals(0, rule.getMinorDigits());
+		assertEquals(BigDecimal.ONE, rule.getRoundingIncrement());
+		assertEquals(1, rule.getRoundingIncrementMinorUnits());
+	}
+
+	@Test
+	public void testGetRule_DefaultThreeDigits()
+	{
+		// WHEN
+		CurrencyRuleModel rule = currencyRuleService.getRule(KWD);
+
+		// THEN
+		assertEquals(3, rule.getMinorDigits());
+		assertEquals(new BigDecimal("0.001"), rule.getRoundingIncrement());
+		assertEquals(1, rule.getRoundingIncrementMinorUnits());
+	}
+
+	@Test
+	public void testRegister_ReplacesRule()
+	{
+		// GIVEN
+		CurrencyRuleModel rule = new CurrencyRuleModel(CHF, 2, new BigDecimal("0.10"));
+
+		// WHEN
+		currencyRuleService.getRule(CHF);
+		currencyRuleService.register(rule);
+
+		// THEN
+		assertSame(rule, currencyRuleService.getRule(CHF));
+		assertEquals(10, rule.getRoundingIncrementMinorUnits());
+	}
+
+	@Test
+	public void testCurrencyRule_IncrementFinerThanMinorUnit()
+	{
+		// WHEN
+		try
+		{
+			new CurrencyRuleModel(JPY, 0, new BigDecimal("0.5"));
+		}
+		// THEN
+		catch (IllegalArgumentException e)
+		{
+			return;
+		}
+
+		fail("Should have thrown an IllegalArgumentException");
+	}
+}
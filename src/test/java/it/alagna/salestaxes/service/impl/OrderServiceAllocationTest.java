@@ -0,0 +1,180 @@
+package it.alagna.salestaxes.service.impl;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import it.alagna.salextaxes.exception.OrderEntryException;
+import it.alagna.salextaxes.generator.OrderGenerator;
+import it.alagna.salextaxes.generator.OrderGeneratorSettings;
+import it.alagna.salextaxes.model.OrderEntryModel;
+import it.alagna.salextaxes.model.OrderModel;
+import it.alagna.salextaxes.service.impl.OrderService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ *
+ * Allocation gate of the evaluation path: measures the bytes allocated by the current thread per evaluated entry
+ * and fails when they exceed the budget recorded in {@link #BUDGETS_FILE}.
+ * </br></br>
+ * Every measure runs on freshly generated entries, since evaluated entries cache their net price, after some warm-up rounds
+ * so that the figures are those of compiled code. When a change allocates more on purpose, update the budget in the same commit.
+ * Skipped on JVMs without thread allocation accounting, and on Java versions other than the one the budgets were recorded on,
+ * since allocation depends on the JIT and the class library.
+ */
+public class OrderServiceAllocationTest {
+
+	private static final String BUDGETS_FILE = "/allocation-budgets.properties";
+	private static final String RECORDED_JAVA_VERSION = "java.specification.version";
+	private static final int ORDERS = 5000;
+	private static final int WARMUP_ROUNDS = 10;
+
+	private static com.sun.management.ThreadMXBean threadBean;
+	private static Properties budgets;
+
+	private OrderService orderService;
+	private long seed;
+
+	@BeforeClass
+	public static void setupClass() throws IOException
+	{
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+		threadBean = (com.sun.management.ThreadMXBean) bean;
+		assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+		threadBean.setThreadAllocatedMemoryEnabled(true);
+
+		budgets = new Properties();
+		try(InputStream in = OrderServiceAllocationTest.class.getResourceAsStream(BUDGETS_FILE))
+		{
+			assertNotNull("Missing " + BUDGETS_FILE, in);
+			budgets.load(in);
+		}
+		String recorded = budgets.getProperty(RECORDED_JAVA_VERSION);
+		assumeTrue("Budgets recorded on Java " + recorded, System.getProperty(RECORDED_JAVA_VERSION).equals(recorded));
+	}
+
+	@Before
+	public void setup()
+	{
+		orderService = new OrderService();
+	}
+
+	@Test
+	public void testEvaluateTotalTaxes_OrderEntryModel() throws OrderEntryException
+	{
+		for(int round = 0; round < WARMUP_ROUNDS; round++)
+		{
+			evaluateTotalTaxes(entries(generate()));
+		}
+
+		List<OrderEntryModel> entries = entries(generate());
+		long allocated = allocatedBytes();
+		evaluateTotalTaxes(entries);
+		allocated = allocatedBytes() - allocated;
+
+		assertWithinBudget("evaluateTotalTaxes.entry", allocated, entries.size());
+	}
+
+	@Test
+	public void testEvaluateTotalPrice_OrderModel() throws OrderEntryException
+	{
+		for(int round = 0; round < WARMUP_ROUNDS; round++)
+		{
+			evaluateTotalPrice(generate());
+		}
+
+		List<OrderModel> orders = generate();
+		long allocated = allocatedBytes();
+		evaluateTotalPrice(orders);
+		allocated = allocatedBytes() - allocated;
+
+		assertWithinBudget("evaluateTotalPrice.order", allocated, entries(orders).size());
+	}
+
+	@Test
+	public void testToOutputString() throws OrderEntryException
+	{
+		for(int round = 0; round < WARMUP_ROUNDS; round++)
+		{
+			toOutputString(generate());
+		}
+
+		List<OrderModel> orders = generate();
+		long allocated = allocatedBytes();
+		toOutputString(orders);
+		allocated = allocatedBytes() - allocated;
+
+		assertWithinBudget("toOutputString", allocated, entries(orders).size());
+	}
+
+	private void evaluateTotalTaxes(List<OrderEntryModel> entries) throws OrderEntryException
+	{
+		for(OrderEntryModel entry : entries)
+		{
+			orderService.evaluateTotalTaxes(entry);
+		}
+	}
+
+	private void evaluateTotalPrice(List<OrderModel> orders) throws OrderEntryException
+	{
+		for(OrderModel order : orders)
+		{
+			orderService.evaluateTotalPrice(order);
+		}
+	}
+
+	private void toOutputString(List<OrderModel> orders) throws OrderEntryException
+	{
+		for(OrderModel order : orders)
+		{
+			orderService.toOutputString(order);
+		}
+	}
+
+	/**
+	 * @return new orders at every call, with a different seed so that the branches of a round are not all alike
+	 */
+	private List<OrderModel> generate()
+	{
+		OrderGeneratorSettings settings = new OrderGeneratorSettings();
+		settings.setSeed(seed++);
+		return new OrderGenerator(settings).generate(ORDERS);
+	}
+
+	private static List<OrderEntryModel> entries(List<OrderModel> orders)
+	{
+		List<OrderEntryModel> entries = new ArrayList<OrderEntryModel>();
+		for(OrderModel order : orders)
+		{
+			entries.addAll(order.getEntries());
+		}
+		return entries;
+	}
+
+	private static long allocatedBytes()
+	{
+		return threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	private static void assertWithinBudget(String key, long allocated, int entries)
+	{
+		String budget = budgets.getProperty(key);
+		assertNotNull("No budget for " + key + " in " + BUDGETS_FILE, budget);
+
+		double perEntry = (double) allocated / entries;
+		System.out.println(String.format("%s: %.1f bytes/entry (budget %s)", key, perEntry, budget));
+		assertTrue(String.format("%s allocates %.1f bytes/entry, over the budget of %s in %s", key, perEntry, budget, BUDGETS_FILE),
+				perEntry <= Double.parseDouble(budget));
+	}
+}
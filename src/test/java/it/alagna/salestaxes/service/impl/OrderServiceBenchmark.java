@@ -0,0 +1,103 @@
+package it.alagna.salestaxes.service.impl;
+
+import it.alagna.salextaxes.exception.OrderEntryException;
+import it.alagna.salextaxes.model.OrderEntryModel;
+import it.alagna.salextaxes.model.OrderModel;
+import it.alagna.salextaxes.service.impl.OrderService;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ * Compares the serial and the parallel order-level reduction of {@link OrderService}
+ * for increasing order sizes, and reports the crossover point: the smallest size from which
+ * the parallel path is faster for every larger size.
+ * </br></br>
+ * Not a test suite: run it explicitly, e.g.</br>
+ * <code>mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=it.alagna.salestaxes.service.impl.OrderServiceBenchmark</code>
+ */
+public class OrderServiceBenchmark {
+
+	private static final int[] SIZES = { 1000, 2500, 5000, 10000, 20000, 50000, 100000, 250000, 500000, 1000000 };
+	private static final int WARMUP_ROUNDS = 5;
+	private static final int MEASURED_ROUNDS = 10;
+
+	public static void main(String[] args) throws OrderEntryException
+	{
+		OrderService orderService = new OrderService();
+		Integer crossover = null;
+
+		System.out.println(String.format("%10s %12s %12s %8s", "entries", "serial ms", "parallel ms", "speedup"));
+
+		for(int size : SIZES)
+		{
+			OrderModel order = createOrder(size);
+
+			orderService.setParallelThreshold(Integer.MAX_VALUE);
+			BigDecimal serialTotal = orderService.evaluateTotalPrice(order);
+			double serial = measure(orderService, order);
+
+			orderService.setParallelThreshold(0);
+			BigDecimal parallelTotal = orderService.evaluateTotalPrice(order);
+			double parallel = measure(orderService, order);
+
+			if(!serialTotal.equals(parallelTotal))
+			{
+				throw new IllegalStateException("Parallel total " + parallelTotal + " differs from serial total " + serialTotal);
+			}
+
+			if(parallel >= serial)
+			{
+				crossover = null;
+			}
+			else if(crossover == null)
+			{
+				crossover = size;
+			}
+
+			System.out.println(String.format("%10d %12.3f %12.3f %8.2f", size, serial, parallel, serial / parallel));
+		}
+
+		System.out.println("Crossover: " + (crossover != null ? crossover + " entries" : "not reached")
+				+ " (" + Runtime.getRuntime().availableProcessors() + " processors, default threshold: "
+				+ OrderService.DEFAULT_PARALLEL_THRESHOLD + ")");
+	}
+
+	private static double measure(OrderService orderService, OrderModel order) throws OrderEntryException
+	{
+		for(int i = 0; i < WARMUP_ROUNDS; i++)
+		{
+			orderService.evaluateTotalPrice(order);
+		}
+
+		long start = System.nanoTime();
+		for(int i = 0; i < MEASURED_ROUNDS; i++)
+		{
+			orderService.evaluateTotalPrice(order);
+		}
+
+		return (System.nanoTime() - start) / 1e6 / MEASURED_ROUNDS;
+	}
+
+	private static OrderModel createOrder(int size)
+	{
+		List<OrderEntryModel> entries = new ArrayList<OrderEntryModel>(size);
+
+		for(int i = 0; i < size; i++)
+		{
+			OrderEntryModel entry = new OrderEntryModel();
+			entry.setDescription("item " + i % 100);
+			entry.setPricePerUnit(BigDecimal.valueOf(100 + i * 37 % 9900, 2));
+			entry.setQuantity(1 + i % 3);
+			entry.setTaxExempt(i % 2 == 0);
+			entry.setImported(i % 3 == 0);
+			entries.add(entry);
+		}
+
+		OrderModel order = new OrderModel();
+		order.setEntries(entries);
+		return order;
+	}
+}
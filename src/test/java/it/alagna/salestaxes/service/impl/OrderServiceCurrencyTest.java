@@ -0,0 +1,320 @@
+package it.alagna.salestaxes.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import it.alagna.salextaxes.exception.OrderEntryException;
+import it.alagna.salextaxes.generator.OrderGenerator;
+import it.alagna.salextaxes.generator.OrderGeneratorSettings;
+import it.alagna.salextaxes.model.CurrencyRuleModel;
+import it.alagna.salextaxes.model.OrderEntryModel;
+import it.alagna.salextaxes.model.OrderModel;
+import it.alagna.salextaxes.model.TaxRateModel;
+import it.alagna.salextaxes.service.impl.OrderService;
+import it.alagna.salextaxes.service.impl.TaxRateService;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class OrderServiceCurrencyTest {
+
+	private static final Currency USD = Currency.getInstance("USD");
+	private static final Currency JPY = Currency.getInstance("JPY");
+	private static final Currency KWD = Currency.getInstance("KWD");
+	private static final Currency CHF = Currency.getInstance("CHF");
+
+	private OrderService orderService;
+
+	@Before
+	public void setup()
+	{
+		orderService = new OrderService();
+		orderService.getCurrencyRuleService().register(new CurrencyRuleModel(KWD, 3, new BigDecimal("0.005")));
+	}
+
+	@Test
+	public void testEvaluateTotalTaxes_TwoDigitsSameAsDefault() throws OrderEntryException
+	{
+		// GIVEN
+		OrderService defaultService = new OrderService();
+
+		for(OrderModel order : new OrderGenerator(new OrderGeneratorSettings()).generate(2000))
+		{
+			for(OrderEntryModel entry : order.getEntries())
+			{
+				// WHEN
+				BigDecimal expected = defaultService.evaluateTotalTaxes(entry);
+				entry.setCurrency(USD);
+				BigDecimal result = orderService.evaluateTotalTaxes(entry);
+
+				// THEN
+				assertEquals(entry.toString(), expected, result);
+			}
+		}
+	}
+
+	@Test
+	public void testEvaluateTotalTaxes_ZeroDigits() throws OrderEntryException
+	{
+		// GIVEN
+		OrderEntryModel entry = createEntry("1234", JPY, true);
+
+		// WHEN
+		BigDecimal taxes = orderService.evaluateTotalTaxes(entry);
+		BigDecimal price = orderService.evaluateTotalPrice(entry);
+
+		// THEN 123.4 -> 124, 61.7 -> 62
+		assertEquals(new BigDecimal("186"), taxes);
+		assertEquals(new BigDecimal("1420"), price);
+	}
+
+	@Test
+	public void testEvaluateTotalTaxes_ThreeDigits() throws OrderEntryException
+	{
+		// GIVEN
+		OrderEntryModel entry = createEntry("1.234", KWD, true);
+
+		// WHEN
+		BigDecimal taxes = orderService.evaluateTotalTaxes(entry);
+
+		// THEN 0.1234 -> 0.125, 0.0617 -> 0.065
+		assertEquals(new BigDecimal("0.190"), taxes);
+	}
+
+	@Test
+	public void testEvaluateTotalTaxes_OverflowSameResult() throws OrderEntryException
+	{
+		// GIVEN
+		OrderEntryModel entry = createEntry("1000000000000000.01", USD, false);
+		entry.setQuantity(1000);
+
+		// WHEN
+		BigDecimal taxes = orderService.evaluateTotalTaxes(entry);
+
+		// THEN 100000000000000001.0 -> 100000000000000001.00
+		assertEquals(new BigDecimal("100000000000000001.00"), taxes);
+	}
+
+	@Test
+	public void testEvaluateTotalTaxes_RatesWithoutIntegerFraction() throws OrderEntryException
+	{
+		// GIVEN
+		TaxRateModel rates = new TaxRateModel(Instant.EPOCH, new BigDecimal("0.1000000000001"), BigDecimal.ZERO, OrderService.ROUNDING_FACTOR);
+		orderService.setTaxRateService(new TaxRateService(rates));
+		OrderEntryModel entry = createEntry("10.00", USD, false);
+
+		// WHEN
+		BigDecimal taxes = orderService.evaluateTotalTaxes(entry);
+
+		// THEN 1.000000000001 -> 1.05
+		assertEquals(new BigDecimal("1.05"), taxes);
+	}
+
+	@Test
+	public void testEvaluateTotalTaxes_DefaultRuleRoundsAsRates() throws OrderEntryException
+	{
+		// GIVEN
+		TaxRateService taxRateService = new TaxRateService();
+		orderService.setTaxRateService(taxRateService);
+		taxRateService.publish(new TaxRateModel(TaxRateService.DEFAULT_RATES.getEffectiveFrom(),
+				new BigDecimal("0.10"), new BigDecimal("0.05"), new BigDecimal("0.10")));
+
+		// WHEN
+		BigDecimal withoutCurrency = orderService.evaluateTotalTaxes(createEntry("11.25", null, true));
+		BigDecimal withCurrency = orderService.evaluateTotalTaxes(createEntry("11.25", USD, true));
+
+		// THEN 1.125 -> 1.20, 0.5625 -> 0.60
+		assertEquals(new BigDecimal("1.80"), withoutCurrency);
+		assertEquals(new BigDecimal("1.80"), withCurrency);
+	}
+
+	@Test
+	public void testEvaluateTotalTaxes_RatesFinerThanMinorUnit() throws OrderEntryException
+	{
+		// GIVEN
+		orderService.setTaxRateService(new TaxRateService(new TaxRateModel(Instant.EPOCH,
+				new BigDecimal("0.10"), new BigDecimal("0.05"), new BigDecimal("0.001"))));
+
+		// WHEN
+		BigDecimal taxes = orderService.evaluateTotalTaxes(createEntry("11.25", USD, true));
+
+		// THEN 1.125 -> 1.13, 0.5625 -> 0.57
+		assertEquals(new BigDecimal("1.70"), taxes);
+	}
+
+	@Test
+	public void testEvaluateTotalTaxes_RegisteredRuleOverRates() throws OrderEntryException
+	{
+		// GIVEN
+		orderService.setTaxRateService(new TaxRateService(new TaxRateModel(Instant.EPOCH,
+				new BigDecimal("0.10"), new BigDecimal("0.05"), new BigDecimal("0.10"))));
+		orderService.getCurrencyRuleService().register(new CurrencyRuleModel(CHF, 2, new BigDecimal("0.05")));
+
+		// WHEN
+		BigDecimal taxes = orderService.evaluateTotalTaxes(createEntry("11.25", CHF, true));
+
+		// THEN 1.125 -> 1.15, 0.5625 -> 0.60
+		assertEquals(new BigDecimal("1.75"), taxes);
+	}
+
+	@Test
+	public void testTaxRates_TooLargeForIntegerFraction()
+	{
+		// WHEN
+		try
+		{
+			new TaxRateModel(Instant.EPOCH, new BigDecimal("1E+30"), BigDecimal.ZERO, OrderService.ROUNDING_FACTOR);
+		}
+		// THEN
+		catch (IllegalArgumentException e)
+		{
+			return;
+		}
+
+		fail("Should have thrown an IllegalArgumentException");
+	}
+
+	@Test
+	public void testEvaluateTotalTaxes_RuleRegisteredAgain() throws OrderEntryException
+	{
+		// GIVEN
+		OrderEntryModel entry = createEntry("1234", JPY, true);
+		orderService.evaluateTotalTaxes(entry);
+		orderService.evaluateTotalPrice(entry);
+		orderService.getCurrencyRuleService().register(new CurrencyRuleModel(JPY, 0, BigDecimal.TEN));
+
+		// WHEN
+		BigDecimal taxes = orderService.evaluateTotalTaxes(entry);
+		BigDecimal price = orderService.evaluateTotalPrice(entry);
+
+		// THEN 123.4 -> 130, 61.7 -> 70
+		assertEquals(new BigDecimal("200"), taxes);
+		assertEquals(new BigDecimal("1434"), price);
+	}
+
+	@Test
+	public void testEvaluateNetPrice_ScaleOfCurrency() throws OrderEntryException
+	{
+		// GIVEN
+		OrderEntryModel entry = createEntry("100.00", JPY, false);
+
+		// WHEN
+		BigDecimal netPrice = orderService.evaluateNetPrice(entry);
+		BigDecimal price = orderService.evaluateTotalPrice(entry);
+
+		// THEN
+		assertEquals(new BigDecimal("100"), netPrice);
+		assertEquals(new BigDecimal("110"), price);
+	}
+
+	@Test
+	public void testEvaluateTotalTaxes_TooManyDecimals()
+	{
+		// GIVEN
+		OrderEntryModel entry = createEntry("12.5", JPY, false);
+
+		// WHEN
+		try
+		{
+			orderService.evaluateTotalTaxes(entry);
+		}
+		// THEN
+		catch (OrderEntryException e)
+		{
+			return;
+		}
+
+		fail("Should have thrown an OrderEntryException");
+	}
+
+	@Test
+	public void testEvaluateTotalPrice_OrderModel_SingleCurrency() throws OrderEntryException
+	{
+		// GIVEN
+		OrderModel order = new OrderModel();
+		order.setEntries(Arrays.asList(createEntry("1234", JPY, true), createEntry("100", JPY, false)));
+
+		// WHEN
+		BigDecimal result = orderService.evaluateTotalPrice(order);
+
+		// THEN
+		assertEquals(new BigDecimal("1530"), result);
+	}
+
+	@Test
+	public void testEvaluateTotalPrice_OrderModel_MixedCurrencies()
+	{
+		// GIVEN
+		OrderModel order = new OrderModel();
+		order.setEntries(Arrays.asList(createEntry("1234", JPY, true), createEntry("10.00", USD, false)));
+
+		// WHEN
+		try
+		{
+			orderService.evaluateTotalPrice(order);
+		}
+		// THEN
+		catch (OrderEntryException e)
+		{
+			return;
+		}
+
+		fail("Should have thrown an OrderEntryException");
+	}
+
+	@Test
+	public void testToOutputString_MixedCurrencies() throws OrderEntryException
+	{
+		// GIVEN
+		OrderModel order = new OrderModel();
+		order.setEntries(Arrays.asList(createEntry("1234", JPY, true), createEntry("10.00", USD, false),
+				createEntry("100", JPY, false), createEntry("10.00", null, true)));
+
+		// WHEN
+		String result = orderService.toOutputString(order);
+
+		// THEN
+		assertEquals("1 imported item: 1420 JPY\n1 item: 11.00 USD\n1 item: 110 JPY\n1 imported item: 11.50\n"
+				+ "Sales Taxes: 196 JPY\nSales Taxes: 1.00 USD\nSales Taxes: 1.50\n"
+				+ "Total: 1530 JPY\nTotal: 11.00 USD\nTotal: 11.50", result);
+	}
+
+	@Test
+	public void testEvaluateTotalsByCurrency() throws OrderEntryException
+	{
+		// GIVEN
+		OrderModel order = new OrderModel();
+		order.setEntries(Arrays.asList(createEntry("1234", JPY, true), createEntry("10.00", USD, false),
+				createEntry("100", JPY, false), createEntry("10.00", null, true)));
+
+		// WHEN
+		Map<Currency, BigDecimal> taxes = orderService.evaluateTotalTaxesByCurrency(order);
+		Map<Currency, BigDecimal> prices = orderService.evaluateTotalPriceByCurrency(order);
+
+		// THEN
+		assertEquals(Arrays.asList(JPY, USD, null), Arrays.asList(taxes.keySet().toArray()));
+		assertEquals(new BigDecimal("196"), taxes.get(JPY));
+		assertEquals(new BigDecimal("1.00"), taxes.get(USD));
+		assertEquals(new BigDecimal("1.50"), taxes.get(null));
+		assertEquals(new BigDecimal("1530"), prices.get(JPY));
+		assertEquals(new BigDecimal("11.00"), prices.get(USD));
+		assertEquals(new BigDecimal("11.50"), prices.get(null));
+	}
+
+	private OrderEntryModel createEntry(String pricePerUnit, Currency currency, boolean imported)
+	{
+		OrderEntryModel entry = new OrderEntryModel();
+		entry.setDescription("item");
+		entry.setPricePerUnit(new BigDecimal(pricePerUnit));
+		entry.setQuantity(1);
+		entry.setImported(imported);
+		entry.setTaxExempt(false);
+		entry.setCurrency(currency);
+		return entry;
+	}
+}
@@ -9,10 +9,15 @@ import static org.mockito.Matchers.any;
 import it.alagna.salextaxes.exception.OrderEntryException;
 import it.alagna.salextaxes.model.OrderEntryModel;
 import it.alagna.salextaxes.model.OrderModel;
+import it.alagna.salextaxes.model.TaxRateModel;
 import it.alagna.salextaxes.service.impl.OrderService;
+import it.alagna.salextaxes.service.impl.TaxRateService;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -46,6 +51,8 @@ public class OrderServiceUnitTest {
 	private static final BigDecimal NEGATIVE_PRICE = BigDecimal.valueOf(-10.00).setScale(2);
 	private static final int NEGATIVE_QUANTITY = -2;
 
+	private static final int PARALLEL_ENTRIES = 10000;
+
 	private static final BigDecimal RAW_TAX_1 = BigDecimal.valueOf(2.244);
 	private static final BigDecimal ROUNDED_TAX_1 = BigDecimal.valueOf(2.25).setScale(2);
 	
@@ -54,6 +61,22 @@ public class OrderServiceUnitTest {
 	
 	private static final BigDecimal RAW_TAX_3 = BigDecimal.valueOf(2.561);
 	private static final BigDecimal ROUNDED_TAX_3 = BigDecimal.valueOf(2.60).setScale(2);
+	
+	private static final BigDecimal ROUNDING_FACTOR_10 = BigDecimal.valueOf(0.10);
+	private static final BigDecimal ROUNDED_TAX_1_BY_10 = BigDecimal.valueOf(2.30).setScale(2);
+	private static final BigDecimal ROUNDING_FACTOR_3 = BigDecimal.valueOf(0.03);
+	private static final BigDecimal ROUNDED_TAX_1_BY_3 = BigDecimal.valueOf(2.25).setScale(2);
+	private static final BigDecimal ROUNDING_FACTOR_THOUSANDTH = new BigDecimal("0.001");
+	private static final BigDecimal RAW_TAX_4 = new BigDecimal("0.1234");
+	private static final BigDecimal ROUNDED_TAX_4_BY_THOUSANDTH = new BigDecimal("0.124");
+	
+	private static final TaxRateModel RATES = TaxRateService.DEFAULT_RATES;
+	
+	private static final Instant PAST = Instant.parse("2015-06-01T10:00:00Z");
+	private static final Instant FUTURE = Instant.parse("2100-01-01T00:00:00Z");
+	private static final TaxRateModel FUTURE_RATES = new TaxRateModel(FUTURE,
+			BigDecimal.valueOf(0.20), BigDecimal.valueOf(0.10), OrderService.ROUNDING_FACTOR);
+	private static final BigDecimal FUTURE_BOTH_TAXES = BigDecimal.valueOf(6.00).setScale(2);
 
 	@Spy
 	private OrderService orderService;
@@ -78,9 +101,9 @@ public class OrderServiceUnitTest {
 		order.setEntries(Arrays.asList(entry1, entry2, entry3));
 
 		willDoNothing().given(orderService).assertEvaluable(any(OrderEntryModel.class));
-		willReturn(TAX1).given(orderService).evaluateTotalTaxes(entry1);
-		willReturn(TAX2).given(orderService).evaluateTotalTaxes(entry2);
-		willReturn(TAX3).given(orderService).evaluateTotalTaxes(entry3);
+		willReturn(TAX1).given(orderService).evaluateTotalTaxes(entry1, RATES);
+		willReturn(TAX2).given(orderService).evaluateTotalTaxes(entry2, RATES);
+		willReturn(TAX3).given(orderService).evaluateTotalTaxes(entry3, RATES);
 
 		// WHEN
 		BigDecimal result = orderService.evaluateTotalTaxes(order);
@@ -117,9 +140,9 @@ public class OrderServiceUnitTest {
 		order.setEntries(Arrays.asList(entry1, entry2, entry3));
 
 		willDoNothing().given(orderService).assertEvaluable(any(OrderEntryModel.class));
-		willReturn(PRICE1).given(orderService).evaluateTotalPrice(entry1);
-		willReturn(PRICE2).given(orderService).evaluateTotalPrice(entry2);
-		willReturn(PRICE3).given(orderService).evaluateTotalPrice(entry3);
+		willReturn(PRICE1).given(orderService).evaluateTotalPrice(entry1, RATES);
+		willReturn(PRICE2).given(orderService).evaluateTotalPrice(entry2, RATES);
+		willReturn(PRICE3).given(orderService).evaluateTotalPrice(entry3, RATES);
 
 		// WHEN
 		BigDecimal result = orderService.evaluateTotalPrice(order);
@@ -149,6 +172,65 @@ public class OrderServiceUnitTest {
 		fail("Should have thrown an OrderEntryException");
 	}
 
+	@Test
+	public void testEvaluateTotalTaxes_OrderModel_Parallel() throws OrderEntryException
+	{
+		// GIVEN
+		order.setEntries(createEntries(PARALLEL_ENTRIES));
+		
+		orderService.setParallelThreshold(Integer.MAX_VALUE);
+		BigDecimal serial = orderService.evaluateTotalTaxes(order);
+		
+		// WHEN
+		orderService.setParallelThreshold(0);
+		BigDecimal result = orderService.evaluateTotalTaxes(order);
+		
+		// THEN
+		assertEquals(serial, result);
+	}
+	
+	@Test
+	public void testEvaluateTotalPrice_OrderModel_Parallel() throws OrderEntryException
+	{
+		// GIVEN
+		order.setEntries(createEntries(PARALLEL_ENTRIES));
+		
+		orderService.setParallelThreshold(Integer.MAX_VALUE);
+		BigDecimal serial = orderService.evaluateTotalPrice(order);
+		
+		// WHEN
+		orderService.setParallelThreshold(0);
+		BigDecimal result = orderService.evaluateTotalPrice(order);
+		
+		// THEN
+		assertEquals(serial, result);
+	}
+	
+	@Test
+	public void testEvaluateTotalPrice_OrderModel_Parallel_FirstException()
+	{
+		// GIVEN
+		List<OrderEntryModel> entries = createEntries(PARALLEL_ENTRIES);
+		entries.get(100).setPricePerUnit(null);
+		entries.get(PARALLEL_ENTRIES - 100).setQuantity(NEGATIVE_QUANTITY);
+		order.setEntries(entries);
+		orderService.setParallelThreshold(0);
+		
+		// WHEN
+		try
+		{
+			orderService.evaluateTotalPrice(order);
+		}
+		// THEN
+		catch (OrderEntryException e)
+		{
+			assertEquals("pricePerUnit not set or invalid", e.getMessage());
+			return;
+		}
+		
+		fail("Should have thrown an OrderEntryException");
+	}
+
 	@Test
 	public void testEvaluateTotalTaxes_OrderEntryModel_NoTaxes() throws OrderEntryException
 	{
@@ -279,13 +361,53 @@ public class OrderServiceUnitTest {
 		// GIVEN
 		willDoNothing().given(orderService).assertEvaluable(any(OrderEntryModel.class));
 		willReturn(NET_PRICE).given(orderService).evaluateNetPrice(entry1);
-		willReturn(BOTH_TAXES).given(orderService).evaluateTotalTaxes(entry1);
+		willReturn(BOTH_TAXES).given(orderService).evaluateTotalTaxes(entry1, RATES);
+	
+		// WHEN
+		BigDecimal result = orderService.evaluateTotalPrice(entry1);
+	
+		// THEN
+		assertEquals(GROSS_PRICE, result);
+	}
 	
+	@Test
+	public void testEvaluateTotalPrice_OrderEntryModel_IndependentOfOtherEvaluations() throws OrderEntryException
+	{
+		// GIVEN
+		entry1.setDescription(DESCRIPTION);
+		entry1.setPricePerUnit(PRICE_PER_UNIT);
+		entry1.setQuantity(QUANTITY);
+		entry1.setTaxExempt(false);
+		entry1.setImported(true);
+		BigDecimal futurePrice = new OrderService().evaluateTotalPrice(entry1, FUTURE_RATES);
+		
 		// WHEN
 		BigDecimal result = orderService.evaluateTotalPrice(entry1);
+		
+		// THEN
+		assertEquals(GROSS_PRICE, result);
+		assertEquals(NET_PRICE.add(FUTURE_BOTH_TAXES), futurePrice);
+	}
 	
+	@Test
+	public void testEvaluateTotalPrice_OrderEntryModel_ReevaluatedAfterSetters() throws OrderEntryException
+	{
+		// GIVEN
+		entry1.setDescription(DESCRIPTION);
+		entry1.setPricePerUnit(PRICE_PER_UNIT);
+		entry1.setQuantity(QUANTITY);
+		entry1.setTaxExempt(true);
+		entry1.setImported(false);
+		orderService.evaluateTotalPrice(entry1);
+		
+		// WHEN
+		entry1.setTaxExempt(false);
+		entry1.setImported(true);
+		BigDecimal result = orderService.evaluateTotalPrice(entry1);
+		
 		// THEN
 		assertEquals(GROSS_PRICE, result);
+		assertEquals(BOTH_TAXES, orderService.evaluateTotalTaxes(entry1));
 	}
 	
 	@Test
@@ -439,4 +561,139 @@ public class OrderServiceUnitTest {
 		// THEN
 		assertEquals(ROUNDED_TAX_3, result);
 	}
+	
+	@Test
+	public void testRoundTax_RoundingFactor()
+	{
+		// WHEN
+		BigDecimal result = orderService.roundTax(RAW_TAX_1, ROUNDING_FACTOR_10);
+		
+		// THEN
+		assertEquals(ROUNDED_TAX_1_BY_10, result);
+	}
+	
+	@Test
+	public void testRoundTax_NonTerminatingRoundingFactor()
+	{
+		// WHEN
+		BigDecimal result = orderService.roundTax(RAW_TAX_1, ROUNDING_FACTOR_3);
+		
+		// THEN
+		assertEquals(ROUNDED_TAX_1_BY_3, result);
+	}
+	
+	@Test
+	public void testRoundTax_RoundingFactorFinerThanCents()
+	{
+		// WHEN
+		BigDecimal result = orderService.roundTax(RAW_TAX_4, ROUNDING_FACTOR_THOUSANDTH);
+		
+		// THEN
+		assertEquals(ROUNDED_TAX_4_BY_THOUSANDTH, result);
+	}
+	
+	@Test
+	public void testEvaluateTotalTaxes_OrderModel_RatesAtTimestamp() throws OrderEntryException
+	{
+		// GIVEN
+		orderService.setTaxRateService(new TaxRateService(TaxRateService.DEFAULT_RATES, FUTURE_RATES));
+		order.getEntries().add(createEntry(entry1));
+		
+		// WHEN
+		order.setTimestamp(PAST);
+		BigDecimal pastTaxes = orderService.evaluateTotalTaxes(order);
+		order.setTimestamp(FUTURE);
+		BigDecimal futureTaxes = orderService.evaluateTotalTaxes(order);
+		order.setTimestamp(null);
+		BigDecimal currentTaxes = orderService.evaluateTotalTaxes(order);
+		
+		// THEN
+		assertEquals(BOTH_TAXES, pastTaxes);
+		assertEquals(FUTURE_BOTH_TAXES, futureTaxes);
+		assertEquals(BOTH_TAXES, currentTaxes);
+	}
+	
+	@Test
+	public void testEvaluateTotalPrice_OrderModel_RatesAtTimestamp() throws OrderEntryException
+	{
+		// GIVEN
+		orderService.setTaxRateService(new TaxRateService(TaxRateService.DEFAULT_RATES, FUTURE_RATES));
+		order.getEntries().add(createEntry(entry1));
+		order.setTimestamp(FUTURE);
+		
+		// WHEN
+		BigDecimal result = orderService.evaluateTotalPrice(order);
+		
+		// THEN
+		assertEquals(NET_PRICE.add(FUTURE_BOTH_TAXES), result);
+	}
+	
+	@Test
+	public void testEvaluateTotalTaxes_OrderEntryModel_PublishedRates() throws OrderEntryException
+	{
+		// GIVEN
+		TaxRateService taxRateService = new TaxRateService();
+		orderService.setTaxRateService(taxRateService);
+		createEntry(entry1);
+		BigDecimal before = orderService.evaluateTotalTaxes(entry1);
+		
+		// WHEN
+		taxRateService.publish(new TaxRateModel(TaxRateService.DEFAULT_RATES.getEffectiveFrom(),
+				FUTURE_RATES.getBasicTaxRate(), FUTURE_RATES.getImportTaxRate(), FUTURE_RATES.getRoundingFactor()));
+		BigDecimal after = orderService.evaluateTotalTaxes(entry1);
+		
+		// THEN
+		assertEquals(BOTH_TAXES, before);
+		assertEquals(FUTURE_BOTH_TAXES, after);
+	}
+	
+	@Test
+	public void testEvaluateTotalTaxes_OrderModel_NoRatesAtTimestamp()
+	{
+		// GIVEN
+		orderService.setTaxRateService(new TaxRateService(FUTURE_RATES));
+		order.getEntries().add(createEntry(entry1));
+		order.setTimestamp(PAST);
+		
+		// WHEN
+		try
+		{
+			orderService.evaluateTotalTaxes(order);
+		}
+		// THEN
+		catch (OrderEntryException e)
+		{
+			return;
+		}
+	
+		fail("Should have thrown an OrderEntryException");
+	}
+	
+	private OrderEntryModel createEntry(OrderEntryModel entry)
+	{
+		entry.setDescription(DESCRIPTION);
+		entry.setPricePerUnit(PRICE_PER_UNIT);
+		entry.setQuantity(QUANTITY);
+		entry.setImported(true);
+		entry.setTaxExempt(false);
+		return entry;
+	}
+	
+	private List<OrderEntryModel> createEntries(int count)
+	{
+		List<OrderEntryModel> entries = new ArrayList<OrderEntryModel>();
+		
+		for(int i = 0; i < count; i++)
+		{
+			OrderEntryModel entry = new OrderEntryModel();
+			entry.setDescription(DESCRIPTION);
+			entry.setPricePerUnit(BigDecimal.valueOf(100 + i * 37 % 9900, 2));
+			entry.setQuantity(1 + i % 3);
+			entry.setTaxExempt(i % 2 == 0);
+			entry.setImported(i % 3 == 0);
+			entries.add(entry);
+		}
+		
+		return entries;
+	}
 }
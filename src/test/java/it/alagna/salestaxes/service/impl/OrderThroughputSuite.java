@@ -0,0 +1,217 @@
+package it.alagna.salestaxes.service.impl;
+
+import it.alagna.salextaxes.exception.OrderEntryException;
+import it.alagna.salextaxes.generator.OrderGenerator;
+import it.alagna.salextaxes.generator.OrderGeneratorSettings;
+import it.alagna.salextaxes.io.IOrderReader;
+import it.alagna.salextaxes.io.IOrderWriter;
+import it.alagna.salextaxes.io.OrderBinaryReader;
+import it.alagna.salextaxes.io.OrderBinaryWriter;
+import it.alagna.salextaxes.io.OrderTextReader;
+import it.alagna.salextaxes.io.OrderTextWriter;
+import it.alagna.salextaxes.io.ReceiptByteRenderer;
+import it.alagna.salextaxes.model.OrderModel;
+import it.alagna.salextaxes.model.OrderResultModel;
+import it.alagna.salextaxes.service.impl.OrderService;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ *
+ * End-to-end throughput suite: for every size and input form, generates an order file,
+ * then parses, evaluates and renders every order, and records orders/s, entries/s, the time spent in every phase,
+ * allocation rate and GC totals of the run into a JSON report.
+ * </br></br>
+ * gcCollectionMillis is the accumulated collection time reported by the collectors, which includes concurrent work
+ * and is not the time the application was paused. allocatedBytes and the allocation rate are null on JVMs
+ * without thread allocation accounting.
+ * </br></br>
+ * Not a test suite: run it explicitly, e.g.</br>
+ * <code>mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=it.alagna.salestaxes.service.impl.OrderThroughputSuite -Dexec.args="1000000,10000000 target/throughput-report.json"</code>
+ * </br></br>
+ * Arguments: comma separated entry counts (default 1M, 10M, 100M) and report path (default target/throughput-report.json).
+ */
+public class OrderThroughputSuite {
+
+	private static final String DEFAULT_SIZES = "1000000,10000000,100000000";
+	private static final String DEFAULT_REPORT = "target/throughput-report.json";
+	private static final String[] FORMS = { "text", "binary" };
+
+	public static void main(String[] args) throws IOException, OrderEntryException
+	{
+		String[] sizes = (args.length > 0 ? args[0] : DEFAULT_SIZES).split(",");
+		File report = new File(args.length > 1 ? args[1] : DEFAULT_REPORT);
+		OrderGeneratorSettings settings = new OrderGeneratorSettings();
+		List<String> runs = new ArrayList<String>();
+
+		for(String size : sizes)
+		{
+			long entries = Long.parseLong(size.trim());
+			for(String form : FORMS)
+			{
+				String run = run(settings, form, entries);
+				System.out.println(run);
+				runs.add(run);
+			}
+		}
+
+		StringBuilder json = new StringBuilder();
+		json.append("{\n  \"timestamp\": ").append(System.currentTimeMillis());
+		json.append(",\n  \"javaVersion\": \"").append(System.getProperty("java.version")).append('"');
+		json.append(",\n  \"processors\": ").append(Runtime.getRuntime().availableProcessors());
+		json.append(",\n  \"seed\": ").append(settings.getSeed());
+		json.append(",\n  \"runs\": [\n    ");
+		for(int i = 0; i < runs.size(); i++)
+		{
+			json.append(i > 0 ? ",\n    " : "").append(runs.get(i));
+		}
+		json.append("\n  ]\n}\n");
+
+		File parent = report.getAbsoluteFile().getParentFile();
+		if(parent != null)
+		{
+			parent.mkdirs();
+		}
+		Writer writer = new OutputStreamWriter(new FileOutputStream(report), StandardCharsets.UTF_8);
+		writer.write(json.toString());
+		writer.close();
+
+		System.out.println("Report written to " + report);
+	}
+
+	private static String run(OrderGeneratorSettings settings, String form, long entries) throws IOException, OrderEntryException
+	{
+		boolean binary = "binary".equals(form);
+		File input = File.createTempFile("orders-" + entries + "-", "." + form);
+		input.deleteOnExit();
+
+		try
+		{
+			IOrderWriter writer = binary ? new OrderBinaryWriter(new FileOutputStream(input)) : new OrderTextWriter(new FileOutputStream(input));
+			new OrderGenerator(settings).write(writer, entries);
+			writer.close();
+
+			System.gc();
+
+			OrderService orderService = new OrderService();
+			IOrderReader reader = binary ? new OrderBinaryReader(new FileInputStream(input)) : new OrderTextReader(new FileInputStream(input));
+			ReceiptByteRenderer renderer = new ReceiptByteRenderer(orderService, Channels.newChannel(new NullOutputStream()), ReceiptByteRenderer.RECEIPT_SEPARATOR);
+
+			long orders = 0;
+			long evaluatedEntries = 0;
+			BigDecimal grandTotal = BigDecimal.ZERO;
+			long parseNanos = 0, evaluateNanos = 0, renderNanos = 0;
+
+			long gcCount = gcCount();
+			long gcMillis = gcCollectionMillis();
+			long allocatedBefore = allocatedBytes();
+			long start = System.nanoTime();
+
+			long phaseStart = start;
+			OrderModel order;
+			while((order = reader.read()) != null)
+			{
+				long parsed = System.nanoTime();
+				OrderResultModel result = orderService.evaluate(order, orderService.getTaxRates(order));
+				long evaluated = System.nanoTime();
+				renderer.render(order, result);
+				long rendered = System.nanoTime();
+
+				parseNanos += parsed - phaseStart;
+				evaluateNanos += evaluated - parsed;
+				renderNanos += rendered - evaluated;
+				phaseStart = rendered;
+
+				grandTotal = grandTotal.add(result.getTotalPrice());
+				orders++;
+				evaluatedEntries += order.getEntries().size();
+			}
+			long parsed = System.nanoTime();
+			renderer.flush();
+			long end = System.nanoTime();
+			parseNanos += parsed - phaseStart;
+			renderNanos += end - parsed;
+
+			double seconds = (end - start) / 1e9;
+			long allocatedAfter = allocatedBytes();
+			Long allocated = allocatedBefore >= 0 && allocatedAfter >= 0 ? allocatedAfter - allocatedBefore : null;
+			gcCount = gcCount() - gcCount;
+			gcMillis = gcCollectionMillis() - gcMillis;
+			renderer.close();
+			reader.close();
+
+			return String.format(Locale.ROOT,
+					"{\"form\": \"%s\", \"entries\": %d, \"orders\": %d, \"seconds\": %.3f, \"ordersPerSecond\": %.1f, \"entriesPerSecond\": %.1f, "
+					+ "\"parseSeconds\": %.3f, \"evaluateSeconds\": %.3f, \"renderSeconds\": %.3f, "
+					+ "\"allocatedBytes\": %s, \"allocationRateMBPerSecond\": %s, \"gcCount\": %d, \"gcCollectionMillis\": %d, \"grandTotal\": \"%s\"}",
+					form, evaluatedEntries, orders, seconds, orders / seconds, evaluatedEntries / seconds,
+					parseNanos / 1e9, evaluateNanos / 1e9, renderNanos / 1e9,
+					allocated, allocated != null ? String.format(Locale.ROOT, "%.1f", allocated / seconds / (1024 * 1024)) : null,
+					gcCount, gcMillis, grandTotal);
+		}
+		finally
+		{
+			input.delete();
+		}
+	}
+
+	/**
+	 * @return the bytes allocated by the current thread so far, or -1 if the JVM does not account them
+	 */
+	private static long allocatedBytes()
+	{
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if(bean instanceof com.sun.management.ThreadMXBean)
+		{
+			return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+
+	private static long gcCount()
+	{
+		long count = 0;
+		for(GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans())
+		{
+			count += Math.max(0, bean.getCollectionCount());
+		}
+		return count;
+	}
+
+	private static long gcCollectionMillis()
+	{
+		long millis = 0;
+		for(GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans())
+		{
+			millis += Math.max(0, bean.getCollectionTime());
+		}
+		return millis;
+	}
+
+	private static class NullOutputStream extends OutputStream
+	{
+		@Override
+		public void write(int b)
+		{
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len)
+		{
+		}
+	}
+}
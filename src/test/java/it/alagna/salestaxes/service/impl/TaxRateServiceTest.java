@@ -0,0 +1,165 @@
+package it.alagna.salestaxes.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import it.alagna.salextaxes.model.TaxRateModel;
+import it.alagna.salextaxes.service.impl.TaxRateService;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TaxRateServiceTest {
+
+	private static final BigDecimal ROUNDING_FACTOR = BigDecimal.valueOf(0.05);
+
+	private static final TaxRateModel RATES_2010 = rates("2010-01-01T00:00:00Z", 0.10);
+	private static final TaxRateModel RATES_2015 = rates("2015-01-01T00:00:00Z", 0.12);
+	private static final TaxRateModel RATES_2020 = rates("2020-01-01T00:00:00Z", 0.15);
+	private static final TaxRateModel OTHER_RATES_2015 = rates("2015-01-01T00:00:00Z", 0.13);
+	private static final TaxRateModel RATES_2100 = rates("2100-01-01T00:00:00Z", 0.20);
+
+	private TaxRateService taxRateService;
+
+	@Before
+	public void setup()
+	{
+		taxRateService = new TaxRateService(RATES_2020, RATES_2010, RATES_2015);
+	}
+
+	@Test
+	public void testGetRates_SubMillisecondVersions()
+	{
+		// GIVEN
+		TaxRateModel first = rates("2020-01-01T00:00:00.000100Z", 0.10);
+		TaxRateModel second = rates("2020-01-01T00:00:00.000900Z", 0.12);
+		taxRateService = new TaxRateService(second, first);
+
+		// WHEN
+		TaxRateModel before = taxRateService.getRates(Instant.parse("2020-01-01T00:00:00.000050Z"));
+		TaxRateModel between = taxRateService.getRates(Instant.parse("2020-01-01T00:00:00.000500Z"));
+		TaxRateModel after = taxRateService.getRates(Instant.parse("2020-01-01T00:00:00.000900Z"));
+
+		// THEN
+		assertEquals(Arrays.asList(first, second), taxRateService.getVersions());
+		assertNull(before);
+		assertSame(first, between);
+		assertSame(second, after);
+	}
+
+	@Test
+	public void testGetRates_InstantsBeyondMilliseconds()
+	{
+		// WHEN
+		TaxRateModel max = taxRateService.getRates(Instant.MAX);
+		TaxRateModel min = taxRateService.getRates(Instant.MIN);
+
+		// THEN
+		assertSame(RATES_2020, max);
+		assertNull(min);
+	}
+
+	@Test
+	public void testGetRates_BetweenVersions()
+	{
+		// WHEN
+		TaxRateModel result = taxRateService.getRates(Instant.parse("2016-07-14T12:00:00Z"));
+
+		// THEN
+		assertSame(RATES_2015, result);
+	}
+
+	@Test
+	public void testGetRates_AtEffectiveDate()
+	{
+		// WHEN
+		TaxRateModel result = taxRateService.getRates(RATES_2015.getEffectiveFrom());
+
+		// THEN
+		assertSame(RATES_2015, result);
+	}
+
+	@Test
+	public void testGetRates_BeforeEffectiveDate()
+	{
+		// WHEN
+		TaxRateModel result = taxRateService.getRates(RATES_2015.getEffectiveFrom().minusMillis(1));
+
+		// THEN
+		assertSame(RATES_2010, result);
+	}
+
+	@Test
+	public void testGetRates_AfterLatestVersion()
+	{
+		// WHEN
+		TaxRateModel result = taxRateService.getRates(Instant.parse("2030-01-01T00:00:00Z"));
+
+		// THEN
+		assertSame(RATES_2020, result);
+	}
+
+	@Test
+	public void testGetRates_BeforeFirstVersion()
+	{
+		// WHEN
+		TaxRateModel result = taxRateService.getRates(Instant.parse("2009-12-31T23:59:59Z"));
+
+		// THEN
+		assertNull(result);
+	}
+
+	@Test
+	public void testGetCurrentRates_FutureVersionPublished()
+	{
+		// GIVEN
+		taxRateService.publish(RATES_2100);
+
+		// WHEN
+		TaxRateModel result = taxRateService.getCurrentRates();
+
+		// THEN
+		assertSame(RATES_2020, result);
+		assertSame(RATES_2100, taxRateService.getRates(RATES_2100.getEffectiveFrom()));
+	}
+
+	@Test
+	public void testPublish_ReplacesVersionWithSameEffectiveDate()
+	{
+		// WHEN
+		taxRateService.publish(OTHER_RATES_2015);
+
+		// THEN
+		assertSame(OTHER_RATES_2015, taxRateService.getRates(Instant.parse("2016-07-14T12:00:00Z")));
+		assertEquals(Arrays.asList(RATES_2010, OTHER_RATES_2015, RATES_2020), taxRateService.getVersions());
+	}
+
+	@Test
+	public void testGetVersions_Sorted()
+	{
+		// WHEN
+		taxRateService.publish(RATES_2100);
+
+		// THEN
+		assertEquals(Arrays.asList(RATES_2010, RATES_2015, RATES_2020, RATES_2100), taxRateService.getVersions());
+	}
+
+	@Test
+	public void testDefaultRates()
+	{
+		// WHEN
+		TaxRateModel result = new TaxRateService().getCurrentRates();
+
+		// THEN
+		assertSame(TaxRateService.DEFAULT_RATES, result);
+	}
+
+	private static TaxRateModel rates(String effectiveFrom, double basicTaxRate)
+	{
+		return new TaxRateModel(Instant.parse(effectiveFrom), BigDecimal.valueOf(basicTaxRate), BigDecimal.valueOf(0.05), ROUNDING_FACTOR);
+	}
+}